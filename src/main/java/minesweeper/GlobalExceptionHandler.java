@@ -25,6 +25,7 @@ package minesweeper;
 
 import minesweeper.accounts.EmailAlreadyUsed;
 import minesweeper.games.AlreadyFinished;
+import minesweeper.games.ConcurrentMove;
 import minesweeper.security.BadCredentialsProvided;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -154,6 +155,12 @@ class GlobalExceptionHandler extends ResponseEntityExceptionHandler
     return Map.of("errors", e.getMessage());
   }
 
+  @ExceptionHandler(ConcurrentMove.class) @ResponseStatus(HttpStatus.CONFLICT) @ResponseBody @NonNull
+  Map<String, Object> onConcurrentMove(final ConcurrentMove e)
+  {
+    return Map.of("errors", e.getMessage());
+  }
+
   @ExceptionHandler(IllegalArgumentException.class) @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY) @ResponseBody @NonNull
   Map<String, Object> onIllegalArgument(final IllegalArgumentException e)
   {
@@ -25,10 +25,12 @@ package minesweeper.games;
 
 import minesweeper.MinesweeperException;
 
+import java.time.LocalDateTime;
+
 public class AlreadyFinished extends MinesweeperException
 {
-  AlreadyFinished(final Game game)
+  AlreadyFinished(final int gameId, final GameStatus status, final LocalDateTime finishedAt)
   {
-    super("Game#" + game.id + " has finished at '" + game.finishedAt + "' as '" + game.status + "'.");
+    super("Game#" + gameId + " has finished at '" + finishedAt + "' as '" + status + "'.");
   }
 }
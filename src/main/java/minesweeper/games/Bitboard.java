@@ -0,0 +1,258 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import java.util.Arrays;
+
+/**
+ * Bit planes of a {@link Board} small enough to fit in {@link #MAX_CELLS} bits (every {@link GameLevel} board does: 1,
+ * 4 and 8 {@code long} words), used to count surrounding mines and to reveal openings with word-parallel shifts and
+ * masks instead of visiting cells one by one.
+ * <p>
+ * Bit {@code i} of a plane (bit {@code i % 64} of word {@code i / 64}) is the cell with row-major index {@code i}.
+ */
+final class Bitboard
+{
+  static final int MAX_CELLS = 512;
+
+  private final int columns;
+  private final int cells;
+  private final long[] all; // every cell of the board
+  private final long[] notFirstColumn;
+  private final long[] notLastColumn;
+  private long[] empty; // cells without adjacent mines, revealed or not, built on first openingOf
+
+  private Bitboard(final Board board)
+  {
+    columns = board.columns;
+    cells = board.size();
+    all = plane();
+    notFirstColumn = plane();
+    notLastColumn = plane();
+    for (int cell = 0; cell < cells; cell++) {
+      set(all, cell);
+      final var column = cell % columns;
+      if (column != 0) {
+        set(notFirstColumn, cell);
+      }
+      if (column != columns - 1) {
+        set(notLastColumn, cell);
+      }
+    }
+  }
+
+  static boolean fits(final Board board) { return board.size() <= MAX_CELLS; }
+
+  static Bitboard of(final Board board)
+  {
+    if (!fits(board)) {
+      throw new IllegalArgumentException("Board must have at most " + MAX_CELLS + " cells to use bit planes.");
+    }
+    return new Bitboard(board);
+  }
+
+  /**
+   * Sets the amount of surrounding mines of every cell of {@code board} which isn't a mine.
+   * <p>
+   * The mines plane is shifted towards each of the 8 neighbours and the shifted planes are added with a bit-sliced
+   * counter: {@code count[k]} holds bit {@code k} of the amount of surrounding mines of every cell.
+   */
+  void countSurroundingMines(final Board board)
+  {
+    final var mines = plane();
+    for (int cell = 0; cell < cells; cell++) {
+      if (board.get(cell) == Game.MINE) {
+        set(mines, cell);
+      }
+    }
+
+    final var count = new long[][]{plane(), plane(), plane(), plane()};
+    final var toRight = shiftedRight(mines);
+    final var toLeft = shiftedLeft(mines);
+    final var shifted = plane();
+
+    add(count, toRight);
+    add(count, toLeft);
+    add(count, shiftedDown(mines, shifted));
+    add(count, shiftedUp(mines, shifted));
+    add(count, shiftedDown(toRight, shifted));
+    add(count, shiftedUp(toRight, shifted));
+    add(count, shiftedDown(toLeft, shifted));
+    add(count, shiftedUp(toLeft, shifted));
+
+    for (int cell = 0; cell < cells; cell++) {
+      if (!isSet(mines, cell)) {
+        board.set(cell, bit(count[0], cell) | bit(count[1], cell) << 1 | bit(count[2], cell) << 2 | bit(count[3], cell) << 3);
+      }
+    }
+  }
+
+  /**
+   * @param board board of a game (see {@link Game#board}).
+   * @param cell  row-major index of a cell without adjacent mines.
+   * @return the plane with the cells of the opening to which {@code cell} belongs, plus its numbered border.
+   */
+  long[] openingOf(final Board board, final int cell)
+  {
+    if (empty == null) {
+      empty = plane();
+      for (int index = 0; index < cells; index++) {
+        final var value = board.get(index);
+        if (value == 0 || value == -1 || value == 10) {
+          set(empty, index);
+        }
+      }
+    }
+
+    // grow the region one step towards its neighbours until no more empty cells are reached
+    var region = plane();
+    var grown = plane();
+    set(region, cell);
+    while (true) {
+      neighbourhoodOf(region, grown);
+      and(grown, empty);
+      if (Arrays.equals(region, grown)) {
+        break;
+      }
+      final var previous = region;
+      region = grown;
+      grown = previous;
+    }
+    neighbourhoodOf(region, grown);
+    return grown;
+  }
+
+  private static boolean isSet(final long[] plane, final int cell) { return (plane[cell >>> 6] & (1L << cell)) != 0; }
+
+  private long[] plane() { return new long[(cells + 63) >>> 6]; }
+
+  private static void set(final long[] plane, final int cell) { plane[cell >>> 6] |= 1L << cell; }
+
+  private static int bit(final long[] plane, final int cell) { return (int) (plane[cell >>> 6] >>> cell) & 1; }
+
+  // cells at {@code plane} plus the 8 neighbours of each one of them
+  private void neighbourhoodOf(final long[] plane, final long[] neighbourhood)
+  {
+    final var row = shiftedRight(plane);
+    orInto(row, shiftedLeft(plane));
+    orInto(row, plane);
+    System.arraycopy(row, 0, neighbourhood, 0, row.length);
+    final var shifted = plane();
+    orInto(neighbourhood, shiftedDown(row, shifted));
+    orInto(neighbourhood, shiftedUp(row, shifted));
+  }
+
+  // each cell moved to the next column, cells at the last column are dropped (instead of wrapping to the next row)
+  private long[] shiftedRight(final long[] plane)
+  {
+    final var shifted = plane();
+    for (int word = shifted.length - 1; word >= 0; word--) {
+      final var masked = plane[word] & notLastColumn[word];
+      shifted[word] |= masked << 1;
+      if (word + 1 < shifted.length) {
+        shifted[word + 1] |= masked >>> 63;
+      }
+    }
+    return shifted;
+  }
+
+  // each cell moved to the previous column, cells at the first column are dropped
+  private long[] shiftedLeft(final long[] plane)
+  {
+    final var shifted = plane();
+    for (int word = 0; word < shifted.length; word++) {
+      final var masked = plane[word] & notFirstColumn[word];
+      shifted[word] |= masked >>> 1;
+      if (word > 0) {
+        shifted[word - 1] |= masked << 63;
+      }
+    }
+    return shifted;
+  }
+
+  // each cell moved to the next row, cells at the last row are dropped
+  private long[] shiftedDown(final long[] plane, final long[] shifted)
+  {
+    final int words = columns >>> 6;
+    final int bits = columns & 63;
+    for (int word = shifted.length - 1; word >= 0; word--) {
+      final var from = word - words;
+      long value = 0;
+      if (from >= 0) {
+        value = plane[from] << bits;
+        if (bits != 0 && from > 0) {
+          value |= plane[from - 1] >>> (64 - bits);
+        }
+      }
+      shifted[word] = value & all[word];
+    }
+    return shifted;
+  }
+
+  // each cell moved to the previous row, cells at the first row are dropped
+  private long[] shiftedUp(final long[] plane, final long[] shifted)
+  {
+    final int words = columns >>> 6;
+    final int bits = columns & 63;
+    for (int word = 0; word < shifted.length; word++) {
+      final var from = word + words;
+      long value = 0;
+      if (from < plane.length) {
+        value = plane[from] >>> bits;
+        if (bits != 0 && from + 1 < plane.length) {
+          value |= plane[from + 1] << (64 - bits);
+        }
+      }
+      shifted[word] = value;
+    }
+    return shifted;
+  }
+
+  // count += plane, as a ripple-carry adder over bit slices
+  private static void add(final long[][] count, final long[] plane)
+  {
+    for (int word = 0; word < plane.length; word++) {
+      var carry = plane[word];
+      for (final long[] slice : count) {
+        final var sum = slice[word] ^ carry;
+        carry &= slice[word];
+        slice[word] = sum;
+      }
+    }
+  }
+
+  private static void orInto(final long[] target, final long[] plane)
+  {
+    for (int word = 0; word < target.length; word++) {
+      target[word] |= plane[word];
+    }
+  }
+
+  private static void and(final long[] target, final long[] mask)
+  {
+    for (int word = 0; word < target.length; word++) {
+      target[word] &= mask[word];
+    }
+  }
+}
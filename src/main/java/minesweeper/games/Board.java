@@ -0,0 +1,251 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Cells of a {@link Game}, packed one byte per cell in row-major order.
+ * <p>
+ * Cell values are the ones described at {@link Game#board}, all of them fit in a {@code byte}. Huge boards can be
+ * {@link #chunked(int, int, int, long) chunked}, their cells are generated by {@link Tiles} when they are touched.
+ */
+final class Board
+{
+  static final byte PACKED_VERSION = 1;
+  static final int PACKED_HEADER = 9; // version, rows and columns
+
+  final int rows;
+  final int columns;
+  private final byte[] cells; // null when chunked
+  private final Tiles tiles; // only defined when chunked
+  private Bitboard bitboard; // built on first use and shared by copies, see bitboard()
+
+  Board(final int rows, final int columns) { this(rows, columns, new byte[sizeOf(rows, columns)], null); }
+
+  private Board(final int rows, final int columns, final byte[] cells, final Tiles tiles)
+  {
+    this.rows = rows;
+    this.columns = columns;
+    this.cells = cells;
+    this.tiles = tiles;
+  }
+
+  /**
+   * @return a board whose cells are generated, tile by tile, from {@code seed} when they are touched.
+   */
+  static Board chunked(final int rows, final int columns, final int mines, final long seed)
+  {
+    sizeOf(rows, columns); // validates the dimensions, without allocating the cells
+    return new Board(rows, columns, null, new Tiles(rows, columns, mines, seed));
+  }
+
+  // cells are identified by an int index, so a board can't have more than Integer.MAX_VALUE cells
+  private static int sizeOf(final int rows, final int columns)
+  {
+    if ((long) rows * columns > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Board must have at most " + Integer.MAX_VALUE + " cells.");
+    }
+    return rows * columns;
+  }
+
+  boolean isChunked() { return tiles != null; }
+
+  /**
+   * @return amount of tiles generated so far, {@code 0} when the board isn't chunked.
+   */
+  int generatedTiles() { return isChunked() ? tiles.generatedTiles() : 0; }
+
+  /**
+   * Visits the cells of the tiles generated so far, so a chunked board can be shown without generating all of it.
+   */
+  void forEachGeneratedCell(final Tiles.CellVisitor visitor)
+  {
+    if (!isChunked()) {
+      throw new IllegalStateException("only chunked boards generate their cells.");
+    }
+    tiles.forEachGeneratedCell(visitor);
+  }
+
+  static Board of(final int[][] matrix)
+  {
+    if (matrix.length == 0) {
+      throw new IllegalArgumentException("board must have at least one row.");
+    }
+    final var rows = matrix.length;
+    final var columns = matrix[0].length;
+    if (columns == 0) {
+      throw new IllegalArgumentException("board must have at least one column.");
+    }
+    final var board = new Board(rows, columns);
+    for (int row = 0; row < rows; row++) {
+      if (matrix[row].length != columns) {
+        throw new IllegalArgumentException("all board rows must have " + columns + " columns.");
+      }
+      for (int column = 0; column < columns; column++) {
+        board.set(row, column, matrix[row][column]);
+      }
+    }
+    return board;
+  }
+
+  int size() { return rows * columns; }
+
+  /**
+   * @return the cells themselves, not a copy, so a {@link BoardBuilder} can fill whole rows without going through
+   * {@link #set(int, int, int)}.
+   */
+  byte[] cells()
+  {
+    if (isChunked()) {
+      throw new IllegalStateException("chunked boards generate their cells tile by tile, they don't have a cells array.");
+    }
+    return cells;
+  }
+
+  int index(final int row, final int column) { return row * columns + column; }
+
+  int rowOf(final int index) { return index / columns; }
+
+  int columnOf(final int index) { return index % columns; }
+
+  int get(final int row, final int column) { return isChunked() ? tiles.get(row, column) : cells[index(row, column)]; }
+
+  int get(final int index) { return isChunked() ? tiles.get(rowOf(index), columnOf(index)) : cells[index]; }
+
+  void set(final int row, final int column, final int value)
+  {
+    if (isChunked()) {
+      tiles.set(row, column, value);
+    } else {
+      cells[index(row, column)] = (byte) value;
+    }
+  }
+
+  void set(final int index, final int value)
+  {
+    if (isChunked()) {
+      tiles.set(rowOf(index), columnOf(index), value);
+    } else {
+      cells[index] = (byte) value;
+    }
+  }
+
+  Board copy()
+  {
+    final var board = isChunked() ? new Board(rows, columns, null, tiles.copy()) : new Board(rows, columns, cells.clone(), null);
+    board.bitboard = bitboard;
+    return board;
+  }
+
+  /**
+   * @return the bit planes of this board, built the first time they are needed and shared with its copies: moves only
+   * reveal or flag cells, so the layout of the planes (and of the cells without adjacent mines) never changes.
+   */
+  Bitboard bitboard()
+  {
+    if (bitboard == null) {
+      bitboard = Bitboard.of(this);
+    }
+    return bitboard;
+  }
+
+  Board with(final CellChanges changes)
+  {
+    final var board = copy();
+    for (int position = 0; position < changes.size(); position++) {
+      board.set(changes.cell(position), changes.value(position));
+    }
+    return board;
+  }
+
+  int[][] toMatrix()
+  {
+    final var matrix = new int[rows][columns];
+    for (int row = 0, index = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++, index++) {
+        matrix[row][column] = get(index);
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * @return cells of this board as they are stored at {@code minesweeper.Games.board}: a header with the format version
+   *     ({@link #PACKED_VERSION}), rows and columns (big-endian {@code int}s), followed by a byte per cell.
+   */
+  byte[] pack()
+  {
+    if (isChunked()) {
+      throw new IllegalStateException("chunked boards are stored as a seed plus a changes log, they can't be packed.");
+    }
+    final var packed = ByteBuffer.allocate(PACKED_HEADER + cells.length)
+                                 .put(PACKED_VERSION)
+                                 .putInt(rows)
+                                 .putInt(columns)
+                                 .put(cells);
+    return packed.array();
+  }
+
+  static Board unpack(final byte[] packed)
+  {
+    if (packed.length < PACKED_HEADER) {
+      throw new IllegalArgumentException("packed board has " + packed.length + " bytes, less than its header.");
+    }
+    final var header = ByteBuffer.wrap(packed, 0, PACKED_HEADER);
+    final var version = header.get();
+    if (version != PACKED_VERSION) {
+      throw new IllegalArgumentException("unknown packed board version " + version + ".");
+    }
+    final var rows = header.getInt();
+    final var columns = header.getInt();
+    final var board = new Board(rows, columns);
+    if (packed.length - PACKED_HEADER != board.cells.length) {
+      throw new IllegalArgumentException("packed board of " + rows + "x" + columns + " has " + (packed.length - PACKED_HEADER) + " cells.");
+    }
+    System.arraycopy(packed, PACKED_HEADER, board.cells, 0, board.cells.length);
+    return board;
+  }
+
+  /**
+   * Chunked boards are compared through their {@link Tiles}, without generating the tiles none of them touched, so a
+   * chunked board is never equal to one that isn't chunked: compare their {@link #toMatrix() matrices} for that.
+   */
+  @Override public boolean equals(final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Board that) || rows != that.rows || columns != that.columns) {
+      return false;
+    }
+    return isChunked() ? tiles.equals(that.tiles) : Arrays.equals(cells, that.cells);
+  }
+
+  @Override public int hashCode() { return isChunked() ? tiles.hashCode() : Objects.hash(columns, Arrays.hashCode(cells)); }
+
+  @Override public String toString() { return "Board{rows=" + rows + ", columns=" + columns + '}'; }
+}
@@ -23,11 +23,21 @@
  */
 package minesweeper.games;
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
 final class BoardBuilder
 {
-  private final int[][] cells;
+  private static final int STRIPE_CELLS = 1 << 16; // cells of the row stripes counted by each fork/join task
+
+  private final Board cells;
   private final int rows;
   private final int columns;
+  private int mines;
+  private boolean countingByRows;
 
   BoardBuilder(final int rows, final int columns)
   {
@@ -39,14 +49,30 @@ final class BoardBuilder
     }
     this.rows = rows;
     this.columns = columns;
-    cells = new int[rows][columns];
+    cells = new Board(rows, columns);
   }
 
-  int[][] build() { return cells; }
+  Board build() { return cells; }
+
+  int mines() { return mines; }
+
+  int cellsToReveal() { return (rows * columns) - mines; }
 
   BoardBuilder randomlyPlaceMines(final GameLevel level) { return randomlyPlaceMines(level.mines); }
 
-  BoardBuilder randomlyPlaceMines(final int amount)
+  BoardBuilder randomlyPlaceMines(final int amount) { return randomlyPlaceMines(amount, ThreadLocalRandom.current()); }
+
+  /**
+   * Places mines using a deterministic generator, so the same seed always builds the same board.
+   */
+  BoardBuilder randomlyPlaceMines(final int amount, final long seed) { return randomlyPlaceMines(amount, new Random(seed)); }
+
+  //
+  // Floyd's sampling picks `amount` distinct cells drawing exactly `amount` random numbers, so placement doesn't degrade
+  // as the board gets denser (as rejection sampling does). When more than half of the cells are mines, it is the set
+  // of safe cells which is sampled.
+  //
+  private BoardBuilder randomlyPlaceMines(final int amount, final Random random)
   {
     if (amount < 0) {
       throw new IllegalArgumentException("Board must have 0 or more mines.");
@@ -55,32 +81,166 @@ final class BoardBuilder
     if (amount >= totalCells) {
       throw new IllegalArgumentException("Board must have less mines than cells.");
     }
+    if (mines != 0) {
+      throw new IllegalStateException("Mines were already placed at the board.");
+    }
 
-    final var r = java.util.concurrent.ThreadLocalRandom.current();
-    for (int minesToPlace = amount; minesToPlace > 0; ) {
-      final int row = r.nextInt(rows);
-      final int column = r.nextInt(columns);
-      final var cell = cells[row][column];
+    if (amount <= totalCells / 2) {
+      sample(amount, Game.MINE, random);
+    } else {
+      for (int index = 0; index < totalCells; index++) {
+        cells.set(index, Game.MINE);
+      }
+      sample(totalCells - amount, 0, random);
+    }
+    mines = amount;
 
-      if (cell == 0) {
-        cells[row][column] = Game.MINE;
-        minesToPlace--;
+    return this;
+  }
+
+  private void sample(final int amount, final int value, final Random random)
+  {
+    final int totalCells = cells.size();
+    for (int candidate = totalCells - amount; candidate < totalCells; candidate++) {
+      final var drawn = random.nextInt(candidate + 1);
+      if (cells.get(drawn) == value) {
+        cells.set(candidate, value);
+      } else {
+        cells.set(drawn, value);
       }
     }
+  }
+
+  BoardBuilder placeMineAt(final int row, final int column)
+  {
+    if (!mineAt(row, column)) {
+      cells.set(row, column, Game.MINE);
+      mines++;
+    }
+    return this;
+  }
 
+  /**
+   * When enabled, surrounding mines of boards too big for bit planes are counted adding whole rows of mines, instead of
+   * checking the neighbours of each cell. Both ways produce the same board.
+   */
+  BoardBuilder countingByRows(final boolean enabled)
+  {
+    countingByRows = enabled;
     return this;
   }
 
   BoardBuilder calculateSurroundingMines()
   {
-    for (int row = 0; row < rows; row++) {
+    if (Bitboard.fits(cells)) {
+      Bitboard.of(cells).countSurroundingMines(cells);
+    } else {
+      calculateSurroundingMines(0, rows);
+    }
+    return this;
+  }
+
+  /**
+   * Calculates surrounding mines in parallel row stripes when the board has at least {@code parallelThreshold} cells,
+   * otherwise it does it sequentially. Both ways produce the same board.
+   */
+  BoardBuilder calculateSurroundingMines(final int parallelThreshold)
+  {
+    if ((rows * columns) < parallelThreshold || rows == 1) {
+      return calculateSurroundingMines();
+    }
+    ForkJoinPool.commonPool().invoke(new RowsStripe(0, rows));
+    return this;
+  }
+
+  private void calculateSurroundingMines(final int fromRow, final int toRow)
+  {
+    if (countingByRows) {
+      countByRows(fromRow, toRow);
+      return;
+    }
+    for (int row = fromRow; row < toRow; row++) {
       for (int column = 0; column < columns; column++) {
         if (!mineAt(row, column)) {
-          cells[row][column] = surroundingMinesOf(row, column);
+          cells.set(row, column, surroundingMinesOf(row, column));
         }
       }
     }
-    return this;
+  }
+
+  //
+  // Mine rows are read as 0 / 1 rows padded with a 0 column at each side (and rows outside the board are all 0), so
+  // the count of a cell is the sum of the 3 column sums around it. Rows are read and written straight from the cells
+  // array, in loops over plain arrays whose bounds the JIT can hoist; the only branch left per cell is the one skipping
+  // mines when counts are written. Whether the sums get vectorized is up to the JIT, nothing here depends on it.
+  //
+  private void countByRows(final int fromRow, final int toRow)
+  {
+    final var board = cells.cells();
+    final int width = columns + 2;
+    var above = mineRow(board, fromRow - 1, new byte[width]);
+    var current = mineRow(board, fromRow, new byte[width]);
+    var below = new byte[width];
+    final var columnSums = new byte[width]; // at most 3
+
+    for (int row = fromRow; row < toRow; row++) {
+      mineRow(board, row + 1, below);
+      for (int column = 0; column < width; column++) {
+        columnSums[column] = (byte) (above[column] + current[column] + below[column]);
+      }
+      final int rowStart = row * columns;
+      for (int column = 0; column < columns; column++) {
+        if (current[column + 1] == 0) {
+          board[rowStart + column] = (byte) (columnSums[column] + columnSums[column + 1] + columnSums[column + 2]);
+        }
+      }
+
+      final var previous = above;
+      above = current;
+      current = below;
+      below = previous;
+    }
+  }
+
+  private byte[] mineRow(final byte[] board, final int row, final byte[] mineRow)
+  {
+    if (row < 0 || row >= rows) {
+      Arrays.fill(mineRow, (byte) 0);
+    } else {
+      final int rowStart = row * columns;
+      for (int column = 0; column < columns; column++) {
+        mineRow[column + 1] = (byte) (board[rowStart + column] == Game.MINE ? 1 : 0);
+      }
+    }
+    return mineRow;
+  }
+
+  //
+  // Stripes read the rows next to their boundaries while other stripes write them, which is safe: mines are never
+  // written, and a cell that is not a mine reads as not being a mine both before and after its count is set (counts
+  // are at most 8).
+  //
+  private final class RowsStripe extends RecursiveAction
+  {
+    private final int fromRow;
+    private final int toRow;
+
+    RowsStripe(final int fromRow, final int toRow)
+    {
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+    }
+
+    @Override protected void compute()
+    {
+      final int stripeRows = toRow - fromRow;
+      if (stripeRows == 1 || (stripeRows * columns) <= STRIPE_CELLS) {
+        calculateSurroundingMines(fromRow, toRow);
+      } else {
+        final int middleRow = fromRow + stripeRows / 2;
+        invokeAll(new RowsStripe(fromRow, middleRow), new RowsStripe(middleRow, toRow));
+      }
+    }
   }
 
   private int surroundingMinesOf(final int row, final int column)
@@ -133,7 +293,7 @@ final class BoardBuilder
     return surroundingMines;
   }
 
-  private boolean mineAt(final int row, final int column) { return cells[row][column] == Game.MINE; }
+  private boolean mineAt(final int row, final int column) { return cells.get(row, column) == Game.MINE; }
 
   private boolean isNotAtFirst(final int n) { return n != 0; }
 }
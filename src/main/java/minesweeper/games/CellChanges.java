@@ -0,0 +1,160 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import java.util.Arrays;
+
+/**
+ * Compact list of (cell index, new value) deltas applied to a {@link Board} by a move.
+ * <p>
+ * Cells keep the order in which they were changed, and a cell changed twice keeps only its last value. Lookups by cell
+ * index are resolved through an open addressing table, so the changes can also be used as an overlay of the board
+ * while a move is being computed.
+ */
+final class CellChanges
+{
+  private static final int INITIAL_CAPACITY = 8;
+
+  private int[] cells;
+  private byte[] values;
+  private int size;
+
+  // positions (+1) of cells at cells/values, 0 means the slot is empty
+  private int[] slots;
+  private int shift; // 32 - log2(slots.length), see slotOf
+
+  CellChanges()
+  {
+    cells = new int[INITIAL_CAPACITY];
+    values = new byte[INITIAL_CAPACITY];
+    slots = new int[INITIAL_CAPACITY * 2];
+    shift = Integer.numberOfLeadingZeros(slots.length) + 1;
+  }
+
+  static CellChanges of(final int cell, final int value)
+  {
+    final var changes = new CellChanges();
+    changes.put(cell, value);
+    return changes;
+  }
+
+  void put(final int cell, final int value)
+  {
+    final var slot = slotOf(cell);
+    if (slots[slot] != 0) {
+      values[slots[slot] - 1] = (byte) value;
+      return;
+    }
+    if (size == cells.length) {
+      grow();
+      put(cell, value);
+      return;
+    }
+    cells[size] = cell;
+    values[size] = (byte) value;
+    slots[slot] = ++size;
+  }
+
+  /**
+   * @param cell      index of the cell at the board.
+   * @param otherwise value to use if the cell was not changed.
+   * @return the new value of {@code cell}, or {@code otherwise} if it was not changed.
+   */
+  int get(final int cell, final int otherwise)
+  {
+    final var position = slots[slotOf(cell)];
+    return position == 0 ? otherwise : values[position - 1];
+  }
+
+  int size() { return size; }
+
+  boolean isEmpty() { return size == 0; }
+
+  int cell(final int position) { return cells[position]; }
+
+  int value(final int position) { return values[position]; }
+
+  int[] cells() { return Arrays.copyOf(cells, size); }
+
+  int[] values()
+  {
+    final var result = new int[size];
+    for (int position = 0; position < size; position++) {
+      result[position] = values[position];
+    }
+    return result;
+  }
+
+  void addAll(final CellChanges changes)
+  {
+    for (int position = 0; position < changes.size; position++) {
+      put(changes.cells[position], changes.values[position]);
+    }
+  }
+
+  /**
+   * @return the longest distance between the slot at which a cell is and the one at which its lookup starts.
+   */
+  int longestProbe()
+  {
+    var longest = 0;
+    for (int position = 0; position < size; position++) {
+      final var home = homeSlotOf(cells[position]);
+      var slot = home;
+      while (slots[slot] != position + 1) {
+        slot = (slot + 1) & (slots.length - 1);
+      }
+      longest = Math.max(longest, (slot - home) & (slots.length - 1));
+    }
+    return longest;
+  }
+
+  // the high bits of the multiplicative hash depend on all the bits of the cell, the low ones only on its low bits (so
+  // the cells of a column of a board whose width is a power of 2 would share them)
+  private int homeSlotOf(final int cell) { return (cell * 0x9E3779B9) >>> shift; }
+
+  private int slotOf(final int cell)
+  {
+    final var mask = slots.length - 1;
+    int slot = homeSlotOf(cell);
+    while (slots[slot] != 0 && cells[slots[slot] - 1] != cell) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void grow()
+  {
+    final var capacity = Math.multiplyExact(cells.length, 2);
+    cells = Arrays.copyOf(cells, capacity);
+    values = Arrays.copyOf(values, capacity);
+    slots = new int[capacity * 2];
+    shift = Integer.numberOfLeadingZeros(slots.length) + 1;
+    for (int position = 0; position < size; position++) {
+      slots[slotOf(cells[position])] = position + 1;
+    }
+  }
+
+  @Override public String toString() { return "CellChanges{size=" + size + '}'; }
+}
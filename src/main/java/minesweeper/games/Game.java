@@ -24,11 +24,14 @@
 package minesweeper.games;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import javax.validation.constraints.NotNull;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 final class Game
 {
@@ -74,7 +77,16 @@ final class Game
   //   19 MINE
   //
   // on creation ALL values are between 0..9 -> no cell is known
-  @NotNull @JsonIgnore final int[][] board;
+  @NotNull @JsonIgnore final Board board;
+
+  // mines placed at the board, it never changes once the board is built
+  @JsonIgnore final int mines;
+
+  // safe cells (the ones without a mine) not revealed yet, when it reaches 0 the game is WON
+  @JsonIgnore final int cellsToReveal;
+
+  // updates stored for the game, moves are only stored when the game is still at the version it had when read
+  @JsonIgnore final int version;
 
   Game(
       final int id,
@@ -83,7 +95,10 @@ final class Game
       final LocalDateTime creation,
       final LocalDateTime finishedAt,
       final Duration playTime,
-      final int[][] board)
+      final Board board,
+      final int mines,
+      final int cellsToReveal,
+      final int version)
   {
     this.id = id;
     this.status = status;
@@ -92,6 +107,9 @@ final class Game
     this.playTime = playTime;
     this.owner = owner;
     this.board = board;
+    this.mines = mines;
+    this.cellsToReveal = cellsToReveal;
+    this.version = version;
   }
 
   int get(final int row, final int column)
@@ -108,24 +126,52 @@ final class Game
     if (column >= getColumns()) {
       throw new IllegalArgumentException("row is too big. This game has " + getColumns() + " column (and board access is 0..n-1 indexed)");
     }
-    return board[row][column];
+    return board.get(row, column);
   }
 
-  @JsonProperty char[][] getBoard()
+  /**
+   * @return every cell of the board, {@code null} for chunked boards (which are too big to be shown as a whole, see
+   * {@link #getKnownCells()}).
+   */
+  @JsonProperty @JsonInclude(JsonInclude.Include.NON_NULL) char[][] getBoard()
   {
+    if (board.isChunked()) {
+      return null;
+    }
     return isFinished() ? buildBoard(Game::showCell) : buildBoard(Game::translateCell);
   }
 
+  /**
+   * @return the revealed and flagged cells of a chunked board (every cell of its explored tiles once the game is
+   * finished), {@code null} for the rest of the boards (see {@link #getBoard()}).
+   */
+  @JsonProperty @JsonInclude(JsonInclude.Include.NON_NULL) List<KnownCell> getKnownCells()
+  {
+    if (!board.isChunked()) {
+      return null;
+    }
+    final var cells = new ArrayList<KnownCell>();
+    final var finished = isFinished();
+    board.forEachGeneratedCell((row, column, value) -> {
+      if (finished) {
+        cells.add(new KnownCell(row, column, showCell(value)));
+      } else if (isRevealed(value) || value >= FLAG) {
+        cells.add(new KnownCell(row, column, translateCell(value)));
+      }
+    });
+    return cells;
+  }
+
   private char[][] buildBoard(final IntToCharFunction cellTranslator)
   {
     final var rows = getRows();
     final var columns = getColumns();
     final char[][] cells = new char[rows][];
 
-    for (int row = 0; row < rows; row++) {
+    for (int row = 0, index = 0; row < rows; row++) {
       cells[row] = new char[columns];
-      for (int column = 0; column < columns; column++) {
-        cells[row][column] = cellTranslator.apply(board[row][column]);
+      for (int column = 0; column < columns; column++, index++) {
+        cells[row][column] = cellTranslator.apply(board.get(index));
       }
     }
 
@@ -167,28 +213,11 @@ final class Game
     };
   }
 
-  @JsonProperty int getRows() { return board.length; }
-
-  @JsonProperty int getColumns() { return board[0].length; }
-
-  @JsonProperty int getMinesCount()
-  {
-    final int rows = getRows();
-    final int columns = getColumns();
-
-    int detectedMines = 0;
+  @JsonProperty int getRows() { return board.rows; }
 
-    for (int row = 0; row < rows; row++) {
-      for (int column = 0; column < columns; column++) {
-        final var cell = board[row][column];
-        if (hasMine(cell)) {
-          detectedMines++;
-        }
-      }
-    }
+  @JsonProperty int getColumns() { return board.columns; }
 
-    return detectedMines;
-  }
+  @JsonProperty int getMinesCount() { return mines; }
 
   private boolean hasMine(@NotNull final int cell)
   {
@@ -256,24 +285,92 @@ final class Game
       return GameChange.none();
     }
 
-    final var resultBoard = cloneBoard();
+    final var changes = new CellChanges();
 
     if (hasMine(cell)) {
-      return new GameChange(id, GameStatus.LOOSE, resultBoard);
+      return new GameChange(id, GameStatus.LOOSE, changes, cellsToReveal);
     }
 
     if (hasAdjacentMines(cell)) {
-      resultBoard[row][column] = doReveal(cell);
+      changes.put(board.index(row, column), doReveal(cell));
     }
 
     if (doesntHaveAdjacentMines(cell)) {
-      revealSorroundings(resultBoard, row, column);
+      revealOpening(changes, board.index(row, column));
     }
 
-    if (allCellsWithoutMinesAreRevealed(resultBoard)) {
-      return new GameChange(id, GameStatus.WON, resultBoard);
+    // every change done by a reveal is a safe cell being revealed
+    final var remainingCellsToReveal = cellsToReveal - changes.size();
+    if (remainingCellsToReveal == 0) {
+      return new GameChange(id, GameStatus.WON, changes, remainingCellsToReveal);
     } else {
-      return new GameChange(id, GameStatus.PLAYING, resultBoard);
+      return new GameChange(id, GameStatus.PLAYING, changes, remainingCellsToReveal);
+    }
+  }
+
+  /**
+   * Chords a revealed numbered cell: when as many of its neighbours as its number are flagged, the rest of its
+   * neighbours are revealed at once (and the game is lost if one of them is a mine).
+   */
+  GameChange chord(final int row, final int column)
+  {
+    if (isFinished()) {
+      return GameChange.none();
+    }
+
+    final var cell = get(row, column);
+    if (!isRevealed(cell)) {
+      return GameChange.none();
+    }
+    final var surroundingMines = -cell - 1;
+    if (surroundingMines == 0) {
+      return GameChange.none();
+    }
+
+    final var fromRow = Math.max(0, row - 1);
+    final var toRow = Math.min(board.rows - 1, row + 1);
+    final var fromColumn = Math.max(0, column - 1);
+    final var toColumn = Math.min(board.columns - 1, column + 1);
+
+    int flaggedNeighbours = 0;
+    for (int neighbourRow = fromRow; neighbourRow <= toRow; neighbourRow++) {
+      for (int neighbourColumn = fromColumn; neighbourColumn <= toColumn; neighbourColumn++) {
+        if (isFlagged(board.get(neighbourRow, neighbourColumn))) {
+          flaggedNeighbours++;
+        }
+      }
+    }
+    if (flaggedNeighbours != surroundingMines) {
+      return GameChange.none();
+    }
+
+    final var changes = new CellChanges();
+    for (int neighbourRow = fromRow; neighbourRow <= toRow; neighbourRow++) {
+      for (int neighbourColumn = fromColumn; neighbourColumn <= toColumn; neighbourColumn++) {
+        final var index = board.index(neighbourRow, neighbourColumn);
+        final var neighbour = changes.get(index, board.get(index));
+        if (isRevealed(neighbour) || isFlagged(neighbour)) {
+          continue;
+        }
+        if (hasMine(neighbour)) {
+          return new GameChange(id, GameStatus.LOOSE, new CellChanges(), cellsToReveal);
+        }
+        if (doesntHaveAdjacentMines(neighbour)) {
+          revealOpening(changes, index);
+        } else {
+          changes.put(index, doReveal(neighbour));
+        }
+      }
+    }
+
+    if (changes.isEmpty()) {
+      return GameChange.none();
+    }
+    final var remainingCellsToReveal = cellsToReveal - changes.size();
+    if (remainingCellsToReveal == 0) {
+      return new GameChange(id, GameStatus.WON, changes, remainingCellsToReveal);
+    } else {
+      return new GameChange(id, GameStatus.PLAYING, changes, remainingCellsToReveal);
     }
   }
 
@@ -291,76 +388,56 @@ final class Game
     return cell < 0;
   }
 
-  private boolean allCellsWithoutMinesAreRevealed(final int[][] resultBoard)
+  private boolean hasAdjacentMines(final int cell) { return (cell > 0 && cell < MINE) || (cell > 10 && cell < MARKED_MINE); }
+
+  //
+  // cells without adjacent mines are revealed along with the rest of their opening. Small boards (every GameLevel one)
+  // flood fill the opening using bit planes, bigger ones explore it from the revealed cell, visiting only the cells of
+  // the opening (so chunked boards only generate the tiles it touches).
+  //
+  private void revealOpening(final CellChanges changes, final int cell)
   {
-    final int rows = getRows();
-    final int columns = getColumns();
-
-    int mines = 0;
-    int discoverableCells = 0;
-
-    for (int row = 0; row < rows; row++) {
-      for (int column = 0; column < columns; column++) {
-        final var cell = resultBoard[row][column];
-        if (hasMine(cell)) {
-          mines++;
-          discoverableCells++;
-        } else {
-          if (isDiscoverable(cell)) {
-            discoverableCells++;
+    if (!board.isChunked() && Bitboard.fits(board)) {
+      final var opening = board.bitboard().openingOf(board, cell);
+      for (int word = 0; word < opening.length; word++) {
+        for (long bits = opening[word]; bits != 0; bits &= bits - 1) { // only the cells of the opening are visited
+          final var index = (word << 6) + Long.numberOfTrailingZeros(bits);
+          final var value = changes.get(index, board.get(index));
+          if (!isRevealed(value)) {
+            changes.put(index, doReveal(value));
           }
         }
       }
+      return;
     }
 
-    return mines == discoverableCells;
+    exploreOpening(changes, cell);
   }
 
-  private boolean isDiscoverable(final int cell) { return cell >= 0; }
-
-  private boolean hasAdjacentMines(final int cell) { return (cell > 0 && cell < MINE) || (cell > 10 && cell < MARKED_MINE); }
-
-  private void revealSorroundings(final int[][] board, final int row, final int column)
-  {
-    board[row][column] = -1; // we known that board(row, column) is 0 or 10
-
-    final var isNotAtLastRow = (row + 1) != getRows();
-    final var isNotAtLastColumn = (column + 1) != getColumns();
-
-    if (isNotAtFirst(column)) {
-      revealCell(board, row, column - 1);
-    }
-    if (isNotAtFirst(row)) {
-      revealCell(board, row - 1, column);
-    }
-    if (isNotAtFirst(row) && isNotAtFirst(column)) {
-      revealCell(board, row - 1, column - 1);
-    }
-    if (isNotAtFirst(row) && isNotAtLastColumn) {
-      revealCell(board, row - 1, column + 1);
-    }
-    if (isNotAtLastRow) {
-      revealCell(board, row + 1, column);
-    }
-    if (isNotAtLastColumn) {
-      revealCell(board, row, column + 1);
-    }
-    if (isNotAtLastRow && isNotAtLastColumn) {
-      revealCell(board, row + 1, column + 1);
-    }
-    if (isNotAtLastRow && isNotAtFirst(column)) {
-      revealCell(board, row + 1, column - 1);
-    }
-  }
-
-  private void revealCell(final int[][] board, final int row, final int column)
+  //
+  // an opening is revealed all at once, so exploration can stop at revealed cells: they are the border of the opening or
+  // they belong to an opening already revealed.
+  //
+  private void exploreOpening(final CellChanges changes, final int cell)
   {
-    final var cell = board[row][column];
-    if (hasAdjacentMines(cell)) {
-      board[row][column] = doReveal(cell);
-    }
-    if (doesntHaveAdjacentMines(cell)) {
-      revealSorroundings(board, row, column);
+    final var pending = new IntStack();
+    pending.push(cell);
+    while (!pending.isEmpty()) {
+      final var index = pending.pop();
+      final var value = changes.get(index, board.get(index));
+      if (isRevealed(value)) {
+        continue;
+      }
+      changes.put(index, doReveal(value));
+      if (doesntHaveAdjacentMines(value)) {
+        final var row = board.rowOf(index);
+        final var column = board.columnOf(index);
+        for (int neighbourRow = Math.max(0, row - 1); neighbourRow <= Math.min(board.rows - 1, row + 1); neighbourRow++) {
+          for (int neighbourColumn = Math.max(0, column - 1); neighbourColumn <= Math.min(board.columns - 1, column + 1); neighbourColumn++) {
+            pending.push(board.index(neighbourRow, neighbourColumn));
+          }
+        }
+      }
     }
   }
 
@@ -369,19 +446,6 @@ final class Game
     return cell == 0 || cell == 10;
   }
 
-  private boolean isNotAtFirst(final int n) { return n != 0; }
-
-  private int[][] cloneBoard()
-  {
-    final var clonedBoard = board.clone();
-    final var columns = getColumns();
-    for (int row = 0; row < getRows(); row++) {
-      clonedBoard[row] = new int[columns];
-      System.arraycopy(board[row], 0, clonedBoard[row], 0, columns);
-    }
-    return clonedBoard;
-  }
-
   GameChange flag(final int row, final int column)
   {
     if (isFinished()) {
@@ -396,9 +460,7 @@ final class Game
       return GameChange.none();
     }
 
-    final var resultBoard = cloneBoard();
-    resultBoard[row][column] = cell + FLAG;
-    return new GameChange(id, GameStatus.PLAYING, resultBoard);
+    return new GameChange(id, GameStatus.PLAYING, CellChanges.of(board.index(row, column), cell + FLAG), cellsToReveal);
   }
 
   private boolean isFlagged(final int cell) { return cell > MINE; }
@@ -417,10 +479,58 @@ final class Game
       return GameChange.none();
     }
 
-    final var resultBoard = cloneBoard();
-    resultBoard[row][column] = cell - FLAG;
-    return new GameChange(id, GameStatus.PLAYING, resultBoard);
+    return new GameChange(id, GameStatus.PLAYING, CellChanges.of(board.index(row, column), cell - FLAG), cellsToReveal);
+  }
+
+  /**
+   * Plays {@code moves} in order, each one on the board left by the previous ones, stopping when the game is finished.
+   *
+   * @return all the changes done by the moves, as if they were a single move.
+   */
+  GameChange play(final List<Move> moves)
+  {
+    final var changes = new CellChanges();
+    var game = new Game(id, owner, status, creation, finishedAt, playTime, board.copy(), mines, cellsToReveal, version);
+
+    for (final var move : moves) {
+      if (game.isFinished()) {
+        break;
+      }
+      final var change = switch (move.action) {
+        case REVEAL -> game.reveal(move.row, move.column);
+        case FLAG -> game.flag(move.row, move.column);
+        case UNFLAG -> game.unflag(move.row, move.column);
+        case CHORD -> game.chord(move.row, move.column);
+      };
+      if (change.hasNoChanges()) {
+        continue;
+      }
+      changes.addAll(change.cells);
+      for (int position = 0; position < change.cells.size(); position++) {
+        game.board.set(change.cells.cell(position), change.cells.value(position)); // the copy is only used by this batch
+      }
+      game = new Game(id, owner, change.status, creation, finishedAt, playTime, game.board, mines, change.cellsToReveal, version);
+    }
+
+    if (game.status == status && changes.isEmpty()) {
+      return GameChange.none();
+    }
+    return new GameChange(id, game.status, changes, game.cellsToReveal);
   }
 
   boolean canBePaused() { return status == GameStatus.PLAYING; }
+
+  /**
+   * @return this game as it is once {@code change} is stored, with the {@code finishedAt} and {@code playTime} it has
+   * then.
+   */
+  Game after(final GameChange change, final LocalDateTime finishedAt, final Duration playTime)
+  {
+    return new Game(id, owner, change.status, creation, finishedAt, playTime, board.with(change.cells), mines, change.cellsToReveal, version + 1);
+  }
+
+  Game paused(final Duration playTime)
+  {
+    return new Game(id, owner, GameStatus.PAUSED, creation, finishedAt, playTime, board, mines, cellsToReveal, version + 1);
+  }
 }
@@ -27,18 +27,20 @@ final class GameChange
 {
   private static final class No
   {
-    private static final GameChange CHANGES = new GameChange(-1, null, null);
+    private static final GameChange CHANGES = new GameChange(-1, null, null, 0);
   }
 
   final int id;
   final GameStatus status;
-  final int[][] board; // see Game#board
+  final CellChanges cells; // only the cells changed at Game#board
+  final int cellsToReveal; // see Game#cellsToReveal
 
-  GameChange(final int id, final GameStatus status, final int[][] board)
+  GameChange(final int id, final GameStatus status, final CellChanges cells, final int cellsToReveal)
   {
     this.id = id;
     this.status = status;
-    this.board = board;
+    this.cells = cells;
+    this.cellsToReveal = cellsToReveal;
   }
 
   boolean hasNoChanges() { return this == No.CHANGES; }
@@ -0,0 +1,92 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the moves done on each game inside this node, so concurrent moves on the same game are stored one after
+ * the other instead of failing with {@link ConcurrentMove}.
+ * <p>
+ * Games share a fixed amount of locks (stripes), picked by their id, so moves on different games can wait for each
+ * other when their games fall in the same stripe. How often a move waits is counted at
+ * {@code games.moves.lock.waits}, tagged with {@code game=same} when it waits for a move on its own game, or
+ * {@code game=other} when it waits because of a stripe collision.
+ */
+final class GameLocks
+{
+  private static final int NO_GAME = 0; // ids are generated from 1
+
+  private final ReentrantLock[] stripes;
+  private final AtomicIntegerArray holders; // game whose move holds each stripe
+  private final Counter acquired;
+  private final Counter sameGameWaits;
+  private final Counter otherGameWaits;
+
+  GameLocks(final int stripes, final MeterRegistry registry)
+  {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("at least one lock stripe is required, " + stripes + " were defined.");
+    }
+    this.stripes = new ReentrantLock[stripes];
+    for (int stripe = 0; stripe < stripes; stripe++) {
+      this.stripes[stripe] = new ReentrantLock();
+    }
+    this.holders = new AtomicIntegerArray(stripes);
+    this.acquired = registry.counter("games.moves.lock.acquired");
+    this.sameGameWaits = registry.counter("games.moves.lock.waits", "game", "same");
+    this.otherGameWaits = registry.counter("games.moves.lock.waits", "game", "other");
+  }
+
+  /**
+   * @return the result of {@code move}, run while no other move of the game (nor of the games sharing its stripe) runs.
+   */
+  <T> T withLockOf(final int gameId, final Supplier<T> move)
+  {
+    final var stripe = Math.floorMod(gameId, stripes.length);
+    final var lock = stripes[stripe];
+    if (!lock.tryLock()) {
+      final var holder = holders.get(stripe);
+      if (holder == gameId) {
+        sameGameWaits.increment();
+      } else if (holder != NO_GAME) {
+        otherGameWaits.increment();
+      }
+      lock.lock();
+    }
+    acquired.increment();
+    final var previousHolder = holders.getAndSet(stripe, gameId); // a move can lock its stripe again
+    try {
+      return move.get();
+    } finally {
+      holders.set(stripe, lock.getHoldCount() > 1 ? previousHolder : NO_GAME);
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * What is listed of a {@link Game}: everything but its board.
+ */
+final class GameSummary
+{
+  @JsonProperty final int id;
+  @JsonProperty final GameStatus status;
+  @JsonProperty final LocalDateTime creation;
+  @JsonProperty final LocalDateTime finishedAt;
+  @JsonProperty final Duration playTime;
+  @JsonProperty final int rows;
+  @JsonProperty final int columns;
+  @JsonProperty final int mines;
+
+  GameSummary(
+      final int id,
+      final GameStatus status,
+      final LocalDateTime creation,
+      final LocalDateTime finishedAt,
+      final Duration playTime,
+      final int rows,
+      final int columns,
+      final int mines)
+  {
+    this.id = id;
+    this.status = status;
+    this.creation = creation;
+    this.finishedAt = finishedAt;
+    this.playTime = playTime;
+    this.rows = rows;
+    this.columns = columns;
+    this.mines = mines;
+  }
+
+  @Override public boolean equals(final Object o) { return (this == o) || (o instanceof GameSummary that && id == that.id); }
+
+  @Override public int hashCode() { return id; }
+
+  @Override public String toString() { return "GameSummary{id=" + id + ", status=" + status + ", creation=" + creation + '}'; }
+}
@@ -23,6 +23,7 @@
  */
 package minesweeper.games;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.Authorization;
@@ -33,14 +34,21 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Validated
@@ -48,41 +56,92 @@ import java.util.List;
 @RequestMapping(path = "/games", produces = "application/json; charset=utf-8")
 class Games
 {
+  // max amount of moves played by a single request, so a batch can't hold the game (and its lock) for too long
+  static final int MAX_MOVES_PER_REQUEST = 500;
+
   private final GamesService games;
   private final AuthenticationService authentication;
+  private final ObjectMapper json;
 
-  Games(final GamesService games, final AuthenticationService authentication)
+  Games(final GamesService games, final AuthenticationService authentication, final ObjectMapper json)
   {
     this.games = games;
     this.authentication = authentication;
+    this.json = json;
   }
 
   /**
-   * Gets all the {@link Game}s (being?) played by the active account.
+   * Gets a page of the {@link Game}s (being?) played by the active account, without their boards.
    *
-   * @return the list of known {@link Game}s, sorted by creation time.
+   * @param status optional status of the {@link Game}s to list.
+   * @param after  optional cursor returned as {@code next} by the previous page.
+   * @param limit  max amount of {@link Game}s in the page.
+   * @return a page of {@link GameSummary}s, sorted by creation time.
    */
-  @ApiOperation(value = "Gets all the Games (being?) played by the active account, sorted by creation time.",
+  @ApiOperation(value = """
+                        Gets a page of the Games (being?) played by the active account, sorted by creation time.
+                                                
+                        Games are listed without their boards.
+                        The next page is requested using the `next` cursor of the page as `after`, it is null at the last page.
+                        """,
                 authorizations = @Authorization("Bearer"))
   @GetMapping
-  List<Game> index()
+  GamesPage index(
+      @ApiParam(value = "status of the Games to list.", readOnly = true) @RequestParam(required = false) final GameStatus status,
+      @ApiParam(value = "cursor returned as `next` by the previous page.", readOnly = true) @RequestParam(required = false) final String after,
+      @ApiParam(value = "max amount of Games in the page.", readOnly = true) @RequestParam(defaultValue = "50") @Positive @Max(500) final int limit)
+  {
+    return games.findPageOf(gameOwner(), status, after, limit);
+  }
+
+  /**
+   * Exports all the {@link Game}s of the active account, boards included.
+   *
+   * @return the {@link Game}s, sorted by creation time, as newline delimited JSON (one {@link Game} per line) written
+   * while they are read.
+   */
+  @ApiOperation(value = """
+                        Exports all the Games of the active account, boards included, sorted by creation time.
+                                                
+                        Games are written as newline delimited JSON (one Game per line) while they are read, so exports
+                        of any size are streamed.
+                        """,
+                authorizations = @Authorization("Bearer"))
+  @GetMapping(path = "export", produces = "application/x-ndjson")
+  StreamingResponseBody export()
   {
-    return games.findAll(gameOwner());
+    final var owner = gameOwner(); // resolved now, the body is written by another thread
+    return output -> {
+      try {
+        games.exportGamesOf(owner, game -> {
+          try {
+            output.write(json.writeValueAsBytes(game));
+            output.write('\n');
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (final UncheckedIOException e) {
+        throw e.getCause();
+      }
+    };
   }
 
   /**
    * Creates a {@link Game} for desired level.
    *
    * @param level {@link GameLevel} of the {@link Game} to create.
+   * @param seed  optional seed used to place the mines, the same seed always places them at the same cells.
    * @return a newly created {@link Game}, with all its cells obfuscated.
    */
   @ApiOperation(value = "Creates a Game for desired level.", authorizations = @Authorization("Bearer"))
   @PostMapping("create/{level}")
   Game create(
       @ApiParam(value = "level of the Game to create.", required = true, readOnly = true) @PathVariable final GameLevel level,
+      @ApiParam(value = "seed used to place the mines, the same seed always places them at the same cells.", readOnly = true) @RequestParam(required = false) final Long seed,
       final HttpServletResponse response)
   {
-    final var game = games.createGameOfLevel(gameOwner(), level);
+    final var game = games.createGameOfLevel(gameOwner(), level, seed);
     response.setStatus(HttpStatus.CREATED.value());
     return game;
   }
@@ -93,6 +152,7 @@ class Games
    * @param rows    rows of the {@link Game}'s board.
    * @param columns columns of the {@link Game}'s board.
    * @param mines   mines in the {@link Game}'s board.
+   * @param seed    optional seed used to place the mines, the same seed always places them at the same cells.
    * @return a newly created {@link Game}, with all its cells obfuscated.
    */
   @ApiOperation(value = "Creates a Game with custom configuration.", authorizations = @Authorization("Bearer"))
@@ -101,9 +161,10 @@ class Games
       @ApiParam(value = "rows of the Game's board.", readOnly = true) @RequestParam @NotNull @Positive final Integer rows,
       @ApiParam(value = "columns of the Game's board.", readOnly = true) @RequestParam @NotNull @Positive final Integer columns,
       @ApiParam(value = "mines in the Game's board.", readOnly = true) @RequestParam @NotNull @Positive final Integer mines,
+      @ApiParam(value = "seed used to place the mines, the same seed always places them at the same cells.", readOnly = true) @RequestParam(required = false) final Long seed,
       final HttpServletResponse response)
   {
-    final var game = games.createCustomGame(gameOwner(), rows, columns, mines);
+    final var game = games.createCustomGame(gameOwner(), rows, columns, mines, seed);
     response.setStatus(HttpStatus.CREATED.value());
     return game;
   }
@@ -132,6 +193,55 @@ class Games
     return games.reveal(gameId, gameOwner(), row, column);
   }
 
+  /**
+   * Chords a revealed cell in a {@link Game}, revealing all its un-flagged neighbours in a single move.
+   *
+   * @param gameId unique gameId of the {@link Game}.
+   * @param row    row of the {@link Game}'s board's revealed cell to chord.
+   * @param column column of the {@link Game}'s board's revealed cell to chord.
+   * @return {@link Game}, with the cell neighbours revealed. If one of them was a mine game is marked as FINISHED.
+   */
+  @ApiOperation(value = """
+                        Chords a Game's board revealed cell: reveals all its un-flagged neighbours at once.
+                                                
+                        If the cell isn't revealed, nothing happens.
+                        If the amount of flagged neighbours isn't the number of the cell, nothing happens.
+                        If one of the revealed neighbours is a mine, the game is lost.
+                        """,
+                authorizations = @Authorization("Bearer"))
+  @PutMapping("{gameId}/chord/{row}/{column}")
+  Game chord(
+      @ApiParam(value = "gameId of the game on which the cell must be chorded.", readOnly = true) @PathVariable final int gameId,
+      @ApiParam(value = "row of the cell to chord.", readOnly = true) @PositiveOrZero @PathVariable final int row,
+      @ApiParam(value = "column of the cell to chord.", readOnly = true) @PositiveOrZero @PathVariable final int column)
+  {
+    return games.chord(gameId, gameOwner(), row, column);
+  }
+
+  /**
+   * Plays a batch of moves in a {@link Game}, in order.
+   *
+   * @param gameId unique gameId of the {@link Game}.
+   * @param moves  moves to play, in the order they must be played.
+   * @return {@link Game}, after all the moves were played (or after the one that finished it).
+   */
+  @ApiOperation(value = """
+                        Plays a batch of moves (reveal, flag, unflag or chord a cell) on a Game, in order.
+                                                
+                        Each move is played on the board left by the previous ones, the same way it would be played on its own.
+                        Moves after the one that finishes the game are ignored.
+                        All the changes done by the moves are stored at once.
+                        At most 500 moves can be played by each request.
+                        """,
+                authorizations = @Authorization("Bearer"))
+  @PostMapping("{gameId}/moves")
+  Game play(
+      @ApiParam(value = "gameId of the game on which the moves must be played.", readOnly = true) @PathVariable final int gameId,
+      @ApiParam(value = "moves to play, in order.", required = true, readOnly = true) @RequestBody @NotNull @Size(max = MAX_MOVES_PER_REQUEST) final List<@Valid Move> moves)
+  {
+    return games.play(gameId, gameOwner(), moves);
+  }
+
   /**
    * Flags a cell in a {@link Game}.
    *
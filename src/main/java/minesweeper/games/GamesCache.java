@@ -0,0 +1,145 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Games being played, kept in memory so their moves don't read them again from the DB. It is bounded by the amount of
+ * cells of the boards it keeps, evicting the least recently used games when that amount is exceeded.
+ * <p>
+ * Cached games must never be modified (moves are built as {@link GameChange}s, and applied on copies of the board). As
+ * games can be updated by other nodes, a cached game can be stale: its moves fail with {@link ConcurrentMove}, and it
+ * must be evicted before retrying them.
+ * <p>
+ * Games with chunked boards aren't cached: reading their cells generates tiles (and their copies take the tiles
+ * ownership from them), so they can't be shared by the requests reading them at the same time.
+ * <p>
+ * Its use is measured as a cache named {@code games}: {@code cache.gets} (tagged as {@code result=hit|miss}),
+ * {@code cache.puts}, {@code cache.evictions} and {@code cache.size}.
+ */
+final class GamesCache
+{
+  private final long maxCells;
+  private final LinkedHashMap<Integer, Cached> games = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedCells;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter puts;
+  private final Counter evictions;
+
+  GamesCache(final long maxCells, final MeterRegistry registry)
+  {
+    this.maxCells = maxCells;
+    this.hits = registry.counter("cache.gets", "cache", "games", "result", "hit");
+    this.misses = registry.counter("cache.gets", "cache", "games", "result", "miss");
+    this.puts = registry.counter("cache.puts", "cache", "games");
+    this.evictions = registry.counter("cache.evictions", "cache", "games");
+    registry.gauge("cache.size", Tags.of("cache", "games"), this, GamesCache::size);
+  }
+
+  boolean isEnabled() { return maxCells > 0; }
+
+  long maxCells() { return maxCells; }
+
+  /**
+   * @return the cached game with {@code gameId}, or {@code null} when it isn't cached.
+   */
+  Game get(final int gameId)
+  {
+    if (!isEnabled()) {
+      return null;
+    }
+    final Cached cached;
+    synchronized (games) {
+      cached = games.get(gameId);
+    }
+    if (cached == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return cached.game;
+  }
+
+  /**
+   * Keeps {@code game} as it is after being stored, finished games are evicted as no more moves can be done on them
+   * (and chunked ones as they aren't cached).
+   */
+  void put(final Game game)
+  {
+    if (!isEnabled()) {
+      return;
+    }
+    if (game.isFinished() || game.board.isChunked()) {
+      evict(game.id);
+      return;
+    }
+    synchronized (games) {
+      final var cached = new Cached(game, game.board.size());
+      final var previous = games.put(game.id, cached);
+      if (previous != null) {
+        cachedCells -= previous.cells;
+      }
+      cachedCells += cached.cells;
+      evictEldest();
+    }
+    puts.increment();
+  }
+
+  void evict(final int gameId)
+  {
+    synchronized (games) {
+      final var evicted = games.remove(gameId);
+      if (evicted != null) {
+        cachedCells -= evicted.cells;
+      }
+    }
+  }
+
+  int size()
+  {
+    synchronized (games) {
+      return games.size();
+    }
+  }
+
+  private void evictEldest()
+  {
+    final var entries = games.entrySet().iterator();
+    while (cachedCells > maxCells && games.size() > 1) {
+      final Map.Entry<Integer, Cached> eldest = entries.next();
+      cachedCells -= eldest.getValue().cells;
+      entries.remove();
+      evictions.increment();
+    }
+  }
+
+  private static record Cached(Game game, long cells) {}
+}
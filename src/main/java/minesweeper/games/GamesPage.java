@@ -0,0 +1,86 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A page of the {@link GameSummary}s of an account, sorted by creation.
+ * <p>
+ * Pages are found using a keyset cursor on {@code (creation, id)}: {@link #next} identifies the last game of the page,
+ * and the next page has the games created after it, so listing doesn't get slower as pages advance.
+ */
+final class GamesPage
+{
+  @JsonProperty final List<GameSummary> games;
+  @JsonProperty final String next; // null when this is the last page
+
+  private GamesPage(final List<GameSummary> games, final String next)
+  {
+    this.games = games;
+    this.next = next;
+  }
+
+  /**
+   * @param fetched games found after the cursor, at most {@code limit + 1} of them (the extra one tells that there are
+   *                more pages).
+   * @param limit   max amount of games in the page.
+   */
+  static GamesPage of(final List<GameSummary> fetched, final int limit)
+  {
+    if (fetched.size() <= limit) {
+      return new GamesPage(fetched, null);
+    }
+    final var games = fetched.subList(0, limit);
+    return new GamesPage(games, new Cursor(games.get(limit - 1).creation, games.get(limit - 1).id).encode());
+  }
+
+  /**
+   * Position after which a page starts, encoded as an opaque string for clients.
+   */
+  static record Cursor(LocalDateTime creation, int id)
+  {
+    String encode()
+    {
+      return Base64.getUrlEncoder().withoutPadding().encodeToString((creation + "," + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor parse(final String encoded)
+    {
+      try {
+        final var decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        final var separator = decoded.lastIndexOf(',');
+        return new Cursor(LocalDateTime.parse(decoded.substring(0, separator)), Integer.parseInt(decoded.substring(separator + 1)));
+      } catch (final IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException invalid) {
+        throw new IllegalArgumentException("'" + encoded + "' is not a cursor returned by a previous page.");
+      }
+    }
+  }
+}
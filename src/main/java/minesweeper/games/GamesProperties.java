@@ -0,0 +1,75 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+/**
+ * Settings of the {@link GamesService}, bound from the {@code games.*} properties (they are described at
+ * {@code application.properties}).
+ */
+@ConfigurationProperties("games")
+@ConstructorBinding
+final class GamesProperties
+{
+  final Storage storage;
+  final Board board;
+  final Moves moves;
+  final Cache cache;
+
+  GamesProperties(final Storage storage, final Board board, final Moves moves, final Cache cache)
+  {
+    this.storage = storage;
+    this.board = board;
+    this.moves = moves;
+    this.cache = cache;
+  }
+
+  /**
+   * @param seeded when true, boards are stored as the seed used to place their mines plus the state of their cells.
+   */
+  static record Storage(boolean seeded) {}
+
+  /**
+   * @param parallelThreshold boards with at least this amount of cells count their surrounding mines in parallel.
+   * @param countingByRows    when true, surrounding mines of big boards are counted adding whole rows of mines.
+   * @param chunkedThreshold  boards with at least this amount of cells are chunked.
+   */
+  static record Board(int parallelThreshold, boolean countingByRows, long chunkedThreshold) {}
+
+  /**
+   * @param retries                 times a move is applied again when other move on the same game was stored since
+   *                                it was read.
+   * @param lockStripes             amount of locks shared by the games, to serialize their moves inside each node.
+   * @param writeBehindWindowMillis when greater than 0, moves are stored in the background every this amount of
+   *                                milliseconds.
+   */
+  static record Moves(int retries, int lockStripes, long writeBehindWindowMillis) {}
+
+  /**
+   * @param maxCells games being played are cached while their boards add up to no more than this amount of cells.
+   */
+  static record Cache(long maxCells) {}
+}
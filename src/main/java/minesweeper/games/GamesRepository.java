@@ -27,25 +27,40 @@ import minesweeper.NotFound;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.SqlParameter;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Array;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 class GamesRepository
 {
-  private static final List<SqlParameter> PARAMETERS = List.of(new SqlParameter(Types.VARCHAR, "owner"), new SqlParameter(Types.ARRAY, "board"));
+  private static final List<SqlParameter> PARAMETERS = List.of(new SqlParameter(Types.VARCHAR, "owner"),
+                                                                new SqlParameter(Types.BINARY, "board"),
+                                                                new SqlParameter(Types.INTEGER, "boardRows"),
+                                                                new SqlParameter(Types.INTEGER, "boardColumns"),
+                                                                new SqlParameter(Types.INTEGER, "mines"),
+                                                                new SqlParameter(Types.INTEGER, "cellsToReveal"));
+
+  private static final long SEEDED_LAYOUTS_MAX_CELLS = 8_000_000;
+  private static final int EXPORT_FETCH_SIZE = 100;
 
   private final JdbcTemplate db;
   private final PreparedStatementCreatorFactory insertIntoGames;
+  private final SeededLayouts seededLayouts;
 
   @Autowired GamesRepository(final JdbcTemplate db) { this(db, makeInsertIntoGames()); }
 
@@ -53,6 +68,7 @@ class GamesRepository
   {
     this.db = db;
     this.insertIntoGames = insertIntoGames;
+    this.seededLayouts = new SeededLayouts(SEEDED_LAYOUTS_MAX_CELLS);
   }
 
   Game findById(final int gameId)
@@ -65,84 +81,372 @@ class GamesRepository
                                 game.creation,
                                 game.finishedAt,
                                 game.board,
-                                coalesce((
-                                  SELECT extract(milliseconds FROM sum(coalesce(play.finishedat, current_timestamp) - play.startedat))
-                                  FROM minesweeper.PlayTimes play
-                                  WHERE game.id = play.game), 0) as playtimeInMillis
+                                game.mines,
+                                game.cellsToReveal,
+                                minesweeper.playtimeInMillis(game.playtime, game.activeSince) as playtimeInMillis,
+                                game.boardRows,
+                                game.boardColumns,
+                                game.seed,
+                                game.overlay,
+                                game.loggedCells,
+                                game.loggedValues,
+                                game.version
                               FROM minesweeper.Games game
                               WHERE id = ?
-                              """, key, (rs, rowNum) -> {
-      final var gameOwner = rs.getString(1);
-      final var status = readStatus(rs.getString(2));
-      final var creation = rs.getObject(3, LocalDateTime.class);
-      final var finishedAt = rs.getObject(4, LocalDateTime.class);
-      final var board = readBoard(rs.getArray(5));
-      final var playTime = Duration.ofMillis(rs.getLong(6));
-
-      return new Game(gameId, gameOwner, status, creation, finishedAt, playTime, board.clone());
-    });
+                              """, key, (rs, rowNum) -> readGame(gameId, rs));
     if (game.isEmpty()) {
       throw new NotFound("No Game is defined with id=" + gameId);
     }
     return game.get(0);
   }
 
-  List<Game> findAllOf(final String gameOwner)
-  {
-    return db.query("""
-                    SELECT
-                      game.id,
-                      game.status,
-                      game.creation,
-                      game.finishedAt,
-                      game.board,
-                      coalesce((
-                        SELECT extract(milliseconds FROM sum(coalesce(play.finishedat, current_timestamp) - play.startedat))
-                        FROM minesweeper.PlayTimes play
-                        WHERE game.id = play.game), 0) as playtimeInMillis
-                    FROM minesweeper.Games game
-                    WHERE game.owner = ?
-                    ORDER BY game.creation
-                    """, new Object[]{gameOwner}, (rs, rowNum) -> {
-      final var id = rs.getInt(1);
-      final var status = readStatus(rs.getString(2));
-      final var creation = rs.getObject(3, LocalDateTime.class);
-      final var finishedAt = rs.getObject(4, LocalDateTime.class);
-      final var board = readBoard(rs.getArray(5));
-      final var playTime = Duration.ofMillis(rs.getLong(6));
-
-      return new Game(id, gameOwner, status, creation, finishedAt, playTime, board.clone());
+  /**
+   * Finds a game that can be played by {@code gameOwner}, looking it up by its primary key (so no board is fetched
+   * for games of other owners, nor for finished ones).
+   *
+   * @throws NotFound              when there is no game with {@code gameId}.
+   * @throws AccessDeniedException when the game isn't owned by {@code gameOwner}.
+   * @throws AlreadyFinished       when the game is finished.
+   */
+  Game findPlayableById(final int gameId, final String gameOwner)
+  {
+    final Object[] key = {gameId, gameOwner};
+    final var game = db.query("""
+                              SELECT
+                                game.owner,
+                                game.status,
+                                game.creation,
+                                game.finishedAt,
+                                game.board,
+                                game.mines,
+                                game.cellsToReveal,
+                                minesweeper.playtimeInMillis(game.playtime, game.activeSince) as playtimeInMillis,
+                                game.boardRows,
+                                game.boardColumns,
+                                game.seed,
+                                game.overlay,
+                                game.loggedCells,
+                                game.loggedValues,
+                                game.version
+                              FROM minesweeper.Games game
+                              WHERE id = ? AND owner = ? AND status NOT IN ('WON', 'LOOSE')
+                              """, key, (rs, rowNum) -> readGame(gameId, rs));
+    if (game.isEmpty()) {
+      throw whyIsNotPlayable(gameId, gameOwner);
+    }
+    return game.get(0);
+  }
+
+  // only called when the game couldn't be played, its board is never fetched to tell why
+  private RuntimeException whyIsNotPlayable(final int gameId, final String gameOwner)
+  {
+    final var reasons = db.query("SELECT owner, status, finishedAt FROM minesweeper.Games WHERE id = ?", new Object[]{gameId}, (rs, rowNum) -> {
+      if (!gameOwner.equals(rs.getString(1))) {
+        return new AccessDeniedException("You don't own this game.");
+      }
+      return new AlreadyFinished(gameId, readStatus(rs.getString(2)), rs.getObject(3, LocalDateTime.class));
     });
+    if (reasons.isEmpty()) {
+      return new NotFound("No Game is defined with id=" + gameId);
+    }
+    return reasons.get(0);
   }
 
-  int createGameWith(final String ownerEmail, final int[][] board)
+  /**
+   * Finds the summaries of the games of {@code gameOwner} created after {@code after}, sorted by creation.
+   *
+   * @param status optional status of the games to find.
+   * @param after  optional position of the last game of the previous page.
+   * @param limit  max amount of summaries to find.
+   */
+  List<GameSummary> findSummariesOf(final String gameOwner, final GameStatus status, final GamesPage.Cursor after, final int limit)
+  {
+    final var sql = new StringBuilder("""
+                                      SELECT
+                                        game.id,
+                                        game.status,
+                                        game.creation,
+                                        game.finishedAt,
+                                        game.boardRows,
+                                        game.boardColumns,
+                                        game.mines,
+                                        minesweeper.playtimeInMillis(game.playtime, game.activeSince) as playtimeInMillis
+                                      FROM minesweeper.Games game
+                                      WHERE game.owner = ?
+                                      """);
+    final var parameters = new ArrayList<>();
+    parameters.add(gameOwner);
+    if (status != null) {
+      sql.append("AND game.status = ?::minesweeper.GameStatus\n");
+      parameters.add(status.name());
+    }
+    if (after != null) {
+      sql.append("AND (game.creation, game.id) > (?, ?)\n");
+      parameters.add(after.creation());
+      parameters.add(after.id());
+    }
+    sql.append("ORDER BY game.creation, game.id\nLIMIT ?");
+    parameters.add(limit);
+
+    return db.query(sql.toString(), parameters.toArray(), (rs, rowNum) -> new GameSummary(
+        rs.getInt(1),
+        readStatus(rs.getString(2)),
+        rs.getObject(3, LocalDateTime.class),
+        rs.getObject(4, LocalDateTime.class),
+        Duration.ofMillis(rs.getLong(8)),
+        rs.getInt(5),
+        rs.getInt(6),
+        rs.getInt(7)));
+  }
+
+  /**
+   * Reads all the games of {@code gameOwner}, sorted by creation, passing them one by one to {@code action} as they are
+   * fetched. Rows are fetched {@value #EXPORT_FETCH_SIZE} at a time through a cursor, so no more than that are held
+   * in memory whatever the amount of games is (it must be called within a transaction, or postgres fetches all rows).
+   */
+  void forEachGameOf(final String gameOwner, final Consumer<Game> action)
+  {
+    db.query(connection -> {
+      final var select = connection.prepareStatement("""
+                                                     SELECT
+                                                       game.owner,
+                                                       game.status,
+                                                       game.creation,
+                                                       game.finishedAt,
+                                                       game.board,
+                                                       game.mines,
+                                                       game.cellsToReveal,
+                                                       minesweeper.playtimeInMillis(game.playtime, game.activeSince) as playtimeInMillis,
+                                                       game.boardRows,
+                                                       game.boardColumns,
+                                                       game.seed,
+                                                       game.overlay,
+                                                       game.loggedCells,
+                                                       game.loggedValues,
+                                                       game.version,
+                                                       game.id
+                                                     FROM minesweeper.Games game
+                                                     WHERE game.owner = ?
+                                                     ORDER BY game.creation, game.id
+                                                     """);
+      select.setFetchSize(EXPORT_FETCH_SIZE);
+      select.setString(1, gameOwner);
+      return select;
+    }, (RowCallbackHandler) rs -> action.accept(readGame(rs.getInt(16), rs)));
+  }
+
+  /**
+   * Reads the games being played (but chunked ones), the most recently played first, as long as their boards add up to
+   * no more than {@code maxCells} cells. Rows are fetched through a cursor as done by {@link #forEachGameOf}.
+   */
+  void forEachPlayingGame(final long maxCells, final Consumer<Game> action)
+  {
+    db.query(connection -> {
+      final var select = connection.prepareStatement("""
+                                                     SELECT
+                                                       game.owner,
+                                                       game.status,
+                                                       game.creation,
+                                                       game.finishedAt,
+                                                       game.board,
+                                                       game.mines,
+                                                       game.cellsToReveal,
+                                                       minesweeper.playtimeInMillis(game.playtime, game.activeSince) as playtimeInMillis,
+                                                       game.boardRows,
+                                                       game.boardColumns,
+                                                       game.seed,
+                                                       game.overlay,
+                                                       game.loggedCells,
+                                                       game.loggedValues,
+                                                       game.version,
+                                                       game.id
+                                                     FROM (SELECT
+                                                             playing.*,
+                                                             sum(playing.boardRows::BIGINT * playing.boardColumns)
+                                                               OVER (ORDER BY playing.activeSince DESC NULLS LAST, playing.id) AS cells
+                                                           FROM minesweeper.Games playing
+                                                           WHERE playing.status = 'PLAYING' AND playing.loggedCells IS NULL) game
+                                                     WHERE game.cells <= ?
+                                                     ORDER BY game.activeSince DESC NULLS LAST, game.id
+                                                     """);
+      select.setFetchSize(EXPORT_FETCH_SIZE);
+      select.setLong(1, maxCells);
+      return select;
+    }, (RowCallbackHandler) rs -> action.accept(readGame(rs.getInt(16), rs)));
+  }
+
+  int createGameWith(final String ownerEmail, final Board board, final int mines, final int cellsToReveal)
   {
     final var gameId = new GeneratedKeyHolder();
-    final var createGame = insertIntoGames.newPreparedStatementCreator(List.of(ownerEmail, board));
+    final var createGame = insertIntoGames.newPreparedStatementCreator(List.of(ownerEmail, board.pack(), board.rows, board.columns, mines, cellsToReveal));
     db.update(createGame, gameId);
     return gameId.getKey().intValue();
   }
 
-  void updateGameWith(final GameChange changes)
+  /**
+   * Creates a game whose board is stored as the seed used to place its mines, plus the revealed / flagged state of its
+   * cells, instead of storing all of its cells.
+   */
+  int createSeededGameWith(final String ownerEmail, final Board layout, final int mines, final long seed, final int cellsToReveal)
+  {
+    final var gameId = new GeneratedKeyHolder();
+    db.update(connection -> {
+      final var insert = connection.prepareStatement("""
+                                                     INSERT INTO minesweeper.Games(owner, boardRows, boardColumns, mines, seed, overlay, cellsToReveal)
+                                                     VALUES (?, ?, ?, ?, ?, ?, ?)
+                                                     """, new String[]{"id"});
+      insert.setString(1, ownerEmail);
+      insert.setInt(2, layout.rows);
+      insert.setInt(3, layout.columns);
+      insert.setInt(4, mines);
+      insert.setLong(5, seed);
+      insert.setBytes(6, Overlay.empty(layout.size()));
+      insert.setInt(7, cellsToReveal);
+      return insert;
+    }, gameId);
+    seededLayouts.put(mines, seed, layout);
+    return gameId.getKey().intValue();
+  }
+
+  /**
+   * Creates a game whose board is chunked (see {@link Board#chunked(int, int, int, long)}), storing the seed used to
+   * generate its cells plus the log of cells changed by its moves.
+   */
+  int createChunkedGameWith(final String ownerEmail, final int rows, final int columns, final int mines, final long seed, final int cellsToReveal)
+  {
+    final var gameId = new GeneratedKeyHolder();
+    db.update(connection -> {
+      final var insert = connection.prepareStatement("""
+                                                     INSERT INTO minesweeper.Games(owner, boardRows, boardColumns, mines, seed, loggedCells, loggedValues, cellsToReveal)
+                                                     VALUES (?, ?, ?, ?, ?, '{}', '{}', ?)
+                                                     """, new String[]{"id"});
+      insert.setString(1, ownerEmail);
+      insert.setInt(2, rows);
+      insert.setInt(3, columns);
+      insert.setInt(4, mines);
+      insert.setLong(5, seed);
+      insert.setInt(6, cellsToReveal);
+      return insert;
+    }, gameId);
+    return gameId.getKey().intValue();
+  }
+
+  /**
+   * Stores the changes done by a move on {@code game}, as long as no other move was stored since it was read.
+   *
+   * @return {@code game} as it is after the move, built from {@code changes} and the {@code finishedAt} / play time
+   * returned by the update, without reading the game again.
+   * @throws ConcurrentMove when other move was stored on the game since it was read.
+   */
+  Game updateGameWith(final Game game, final GameChange changes)
   {
     if (changes.isPaused()) {
-      db.update("call minesweeper.pauseGame(?)", changes.id);
-    } else {
-      db.update("call minesweeper.updateGame(?, ?, ?)", changes.id, changes.status.name(), changes.board);
+      return pauseGame(game);
     }
+    final var updated = db.query("SELECT gameFinishedAt, gamePlaytimeInMillis FROM minesweeper.updateGame(?, ?::minesweeper.GameStatus, ?, ?, ?, ?)",
+                                 (rs, rowNum) -> game.after(changes, rs.getObject(1, LocalDateTime.class), Duration.ofMillis(rs.getLong(2))),
+                                 changes.id,
+                                 changes.status.name(),
+                                 changes.cells.cells(),
+                                 changes.cells.values(),
+                                 changes.cellsToReveal,
+                                 game.version);
+    if (updated.isEmpty()) {
+      throw new ConcurrentMove(game.id, game.version);
+    }
+    return updated.get(0);
   }
 
-  void pauseGame(final int gameId) { db.update("call minesweeper.pauseGame(?)", gameId); }
+  /**
+   * Stores the pending moves of many games at once, each game is updated as done by {@link #updateGameWith} (so only
+   * when it is still at the version it had before its first pending move).
+   *
+   * @return ids of the games whose moves were stored.
+   */
+  Set<Integer> storeMoves(final List<MovesWriter.Pending> batch)
+  {
+    final var gameIds = new int[batch.size()];
+    final var statuses = new String[batch.size()];
+    final var firstCells = new int[batch.size()];
+    final var lastCells = new int[batch.size()];
+    final var cellsToReveal = new int[batch.size()];
+    final var versions = new int[batch.size()];
+    final var moves = new int[batch.size()];
+    var changedCells = 0;
+    for (final var pending : batch) {
+      changedCells += pending.cells.size();
+    }
+    final var cells = new int[changedCells];
+    final var values = new int[changedCells];
+
+    for (int i = 0, cell = 0; i < batch.size(); i++) {
+      final var pending = batch.get(i);
+      gameIds[i] = pending.gameId;
+      statuses[i] = pending.status.name();
+      firstCells[i] = cell + 1; // arrays are 1 based at postgres
+      for (int position = 0; position < pending.cells.size(); position++, cell++) {
+        cells[cell] = pending.cells.cell(position);
+        values[cell] = pending.cells.value(position);
+      }
+      lastCells[i] = cell;
+      cellsToReveal[i] = pending.cellsToReveal;
+      versions[i] = pending.version;
+      moves[i] = pending.moves;
+    }
+
+    return new HashSet<>(db.queryForList("""
+                                         SELECT pending.gameId
+                                         FROM unnest(?::INTEGER[], ?::TEXT[], ?::INTEGER[], ?::INTEGER[], ?::INTEGER[], ?::INTEGER[], ?::INTEGER[])
+                                                AS pending(gameId, status, firstCell, lastCell, cellsToReveal, version, moves)
+                                         CROSS JOIN LATERAL minesweeper.updateGame(pending.gameId,
+                                                                                   pending.status::minesweeper.GameStatus,
+                                                                                   (?::INTEGER[])[pending.firstCell:pending.lastCell],
+                                                                                   (?::INTEGER[])[pending.firstCell:pending.lastCell],
+                                                                                   pending.cellsToReveal,
+                                                                                   pending.version,
+                                                                                   pending.moves)
+                                         """,
+                                         Integer.class,
+                                         gameIds, statuses, firstCells, lastCells, cellsToReveal, versions, moves, cells, values));
+  }
+
+  /**
+   * @return {@code game} as it is once paused, without reading it again.
+   * @throws ConcurrentMove when other move was stored on the game since it was read.
+   */
+  Game pauseGame(final Game game)
+  {
+    final var playtimeInMillis = db.queryForObject("SELECT minesweeper.pauseGame(?, ?)", Long.class, game.id, game.version);
+    if (playtimeInMillis == null) {
+      throw new ConcurrentMove(game.id, game.version);
+    }
+    return game.paused(Duration.ofMillis(playtimeInMillis));
+  }
 
   private static PreparedStatementCreatorFactory makeInsertIntoGames()
   {
     final PreparedStatementCreatorFactory insertIntoGames;
-    insertIntoGames = new PreparedStatementCreatorFactory("INSERT INTO minesweeper.Games(owner, board) VALUES (?, ?)", PARAMETERS);
+    insertIntoGames = new PreparedStatementCreatorFactory("INSERT INTO minesweeper.Games(owner, board, boardRows, boardColumns, mines, cellsToReveal) VALUES (?, ?, ?, ?, ?, ?)", PARAMETERS);
     insertIntoGames.setReturnGeneratedKeys(true);
     insertIntoGames.setGeneratedKeysColumnNames("id");
     return insertIntoGames;
   }
 
+  private Game readGame(final int gameId, final ResultSet rs) throws SQLException
+  {
+    final var gameOwner = rs.getString(1);
+    final var status = readStatus(rs.getString(2));
+    final var creation = rs.getObject(3, LocalDateTime.class);
+    final var finishedAt = rs.getObject(4, LocalDateTime.class);
+    final var mines = rs.getInt(6);
+    final var board = readBoard(rs.getBytes(5), rs.getInt(9), rs.getInt(10), mines, rs.getObject(11, Long.class), rs.getBytes(12), rs.getArray(13), rs.getArray(14));
+    final var cellsToReveal = rs.getInt(7);
+    final var playTime = Duration.ofMillis(rs.getLong(8));
+    final var version = rs.getInt(15);
+
+    return new Game(gameId, gameOwner, status, creation, finishedAt, playTime, board, mines, cellsToReveal, version);
+  }
+
   private GameStatus readStatus(final String status)
   {
     if (status == null) {
@@ -155,40 +459,46 @@ class GamesRepository
     }
   }
 
-  private int[][] readBoard(final Array array) throws SQLException
+  private Board readBoard(
+      final byte[] packed,
+      final int rows,
+      final int columns,
+      final int mines,
+      final Long seed,
+      final byte[] overlay,
+      final Array loggedCells,
+      final Array loggedValues) throws SQLException
   {
-    if (array == null) {
-      throw new IllegalStateException("fetched null board from DB.");
+    if (packed != null) {
+      return Board.unpack(packed);
     }
-    try {
-      return asIntMatrix(array.getArray());
-    } finally {
-      array.free();
+    if (seed == null) {
+      throw new IllegalStateException("fetched null board from DB, without seed to regenerate it.");
     }
-  }
-
-  private int[][] asIntMatrix(final Object value)
-  {
-    if (value == null) {
-      throw new IllegalStateException("fetched null board from DB.");
+    if (loggedCells != null && loggedValues != null) {
+      return replay(Board.chunked(rows, columns, mines, seed), loggedCells, loggedValues);
     }
-    if (value instanceof int[][] cells) {
-      return cells;
+    if (overlay == null) {
+      throw new IllegalStateException("fetched null board from DB, without overlay nor changes log to apply to its seed.");
     }
-    if (value instanceof Integer[][] cells) {
-      final var rows = cells.length;
-      final var columns = cells[0].length;
-      final var board = new int[cells.length][];
+    return Overlay.applyTo(seededLayouts.layoutOf(rows, columns, mines, seed), overlay);
+  }
 
-      for (int row = 0; row < rows; row++) {
-        board[row] = new int[columns];
-        for (int column = 0; column < columns; column++) {
-          final var cell = Objects.requireNonNull(cells[row][column], "cells[" + row + "][" + column + "] fetched from DB is null, it shouldn't.");
-          board[row][column] = cell;
-        }
+  private Board replay(final Board board, final Array loggedCells, final Array loggedValues) throws SQLException
+  {
+    try {
+      final var cells = (Integer[]) loggedCells.getArray();
+      final var values = (Integer[]) loggedValues.getArray();
+      if (cells.length != values.length) {
+        throw new IllegalStateException("fetched " + cells.length + " logged cells with " + values.length + " logged values from DB.");
+      }
+      for (int i = 0; i < cells.length; i++) {
+        board.set(cells[i], values[i]);
       }
       return board;
+    } finally {
+      loggedCells.free();
+      loggedValues.free();
     }
-    throw new IllegalStateException("uninterpretable board cells of type '" + value.getClass().getCanonicalName() + "'.");
   }
 }
@@ -23,41 +23,128 @@
  */
 package minesweeper.games;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.access.AccessDeniedException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @org.springframework.stereotype.Service
+@EnableConfigurationProperties(GamesProperties.class)
 class GamesService
 {
   private static final Logger LOGGER = LoggerFactory.getLogger(GamesService.class);
 
   private final GamesRepository repository;
+  private final boolean seededStorage;
+  private final int parallelThreshold;
+  private final boolean countingByRows;
+  private final long chunkedThreshold;
+  private final int moveRetries;
+  private final GameLocks locks;
+  private final TransactionTemplate transactions;
+  private final TransactionTemplate readOnlyTransactions;
+  private final GamesCache cache;
+  private final MovesWriter writer; // null unless moves are written behind
 
-  GamesService(final GamesRepository repository) { this.repository = repository; }
+  GamesService(final GamesRepository repository, final TransactionTemplate transactions, final MeterRegistry registry, final GamesProperties settings)
+  {
+    this.repository = repository;
+    this.seededStorage = settings.storage.seeded();
+    this.parallelThreshold = settings.board.parallelThreshold();
+    this.countingByRows = settings.board.countingByRows();
+    this.chunkedThreshold = settings.board.chunkedThreshold();
+    this.moveRetries = settings.moves.retries();
+    this.locks = new GameLocks(settings.moves.lockStripes(), registry);
+    this.transactions = transactions;
+    this.readOnlyTransactions = new TransactionTemplate(transactions.getTransactionManager(), transactions);
+    this.readOnlyTransactions.setReadOnly(true);
+    this.cache = new GamesCache(settings.cache.maxCells(), registry);
+    final var writeBehindWindowMillis = settings.moves.writeBehindWindowMillis();
+    this.writer = (writeBehindWindowMillis == 0) ? null : new MovesWriter(repository, transactions, cache, locks, writeBehindWindowMillis, registry);
+  }
+
+  /**
+   * Stores the moves written behind that are still pending, before the application is stopped.
+   */
+  @PreDestroy void drainMoves()
+  {
+    if (writer != null) {
+      writer.close();
+    }
+  }
+
+  /**
+   * Caches the games being played when the application starts, so their next moves don't read them from the DB.
+   * <p>
+   * As exports, games are read inside a transaction so they are fetched through a cursor.
+   */
+  @EventListener(ApplicationReadyEvent.class) void warmUpCache()
+  {
+    if (cache.isEnabled()) {
+      readOnlyTransactions.executeWithoutResult(transaction -> repository.forEachPlayingGame(cache.maxCells(), cache::put));
+      LOGGER.info(cache.size() + " games being played were cached.");
+    }
+  }
+
+  @Transactional(readOnly = true) GamesPage findPageOf(final String gameOwner, final GameStatus status, final String after, final int limit)
+  {
+    final var cursor = (after == null) ? null : GamesPage.Cursor.parse(after);
+    return GamesPage.of(repository.findSummariesOf(gameOwner, status, cursor, limit + 1), limit);
+  }
 
-  @Transactional(readOnly = true) List<Game> findAll(final String gameOwner)
+  /**
+   * Passes all the games of {@code gameOwner} to {@code action}, one by one as they are read.
+   * <p>
+   * Games are read inside a transaction (package-private methods aren't proxied, so it can't be {@code @Transactional}):
+   * the driver only fetches the rows through a cursor when the connection isn't in auto-commit mode.
+   */
+  void exportGamesOf(final String gameOwner, final Consumer<Game> action)
   {
-    return repository.findAllOf(gameOwner);
+    readOnlyTransactions.executeWithoutResult(transaction -> repository.forEachGameOf(gameOwner, action));
   }
 
-  @Transactional Game createGameOfLevel(final String ownerEmail, final GameLevel level)
+  @Transactional Game createGameOfLevel(final String ownerEmail, final GameLevel level, final Long seed)
   {
-    return createCustomGame(ownerEmail, level.rows, level.columns, level.mines);
+    return createCustomGame(ownerEmail, level.rows, level.columns, level.mines, seed);
   }
 
-  @Transactional Game createCustomGame(final String ownerEmail, final int rows, final int columns, final int mines)
+  @Transactional Game createCustomGame(final String ownerEmail, final int rows, final int columns, final int mines, final Long seed)
   {
-    final var board = new BoardBuilder(rows, columns)
-                          .randomlyPlaceMines(mines)
-                          .calculateSurroundingMines()
-                          .build();
-    final int assignedId = repository.createGameWith(ownerEmail, board);
+    final int assignedId;
+    if ((long) rows * columns >= chunkedThreshold) {
+      final var boardSeed = (seed == null) ? ThreadLocalRandom.current().nextLong() : seed;
+      final var board = Board.chunked(rows, columns, mines, boardSeed); // validates the board, without generating it
+      assignedId = repository.createChunkedGameWith(ownerEmail, rows, columns, mines, boardSeed, board.size() - mines);
+    } else if (seededStorage) {
+      final var boardSeed = (seed == null) ? ThreadLocalRandom.current().nextLong() : seed;
+      final var board = new BoardBuilder(rows, columns).countingByRows(countingByRows)
+                                                       .randomlyPlaceMines(mines, boardSeed)
+                                                       .calculateSurroundingMines(parallelThreshold);
+      assignedId = repository.createSeededGameWith(ownerEmail, board.build(), board.mines(), boardSeed, board.cellsToReveal());
+    } else {
+      final var board = new BoardBuilder(rows, columns).countingByRows(countingByRows);
+      if (seed == null) {
+        board.randomlyPlaceMines(mines);
+      } else {
+        board.randomlyPlaceMines(mines, seed);
+      }
+      board.calculateSurroundingMines(parallelThreshold);
+      assignedId = repository.createGameWith(ownerEmail, board.build(), board.mines(), board.cellsToReveal());
+    }
     final var game = get(assignedId);
-    if (LOGGER.isDebugEnabled()) {
+    if (LOGGER.isDebugEnabled() && !game.board.isChunked()) {
       LOGGER.debug("Game#" + assignedId + " created, with board:\n\n" + game.toAsciiTable());
 
       LOGGER.debug("\nGame#" + assignedId + " created, with board:\n\n" + game.toAsciiTable(true));
@@ -65,65 +152,149 @@ class GamesService
     return game;
   }
 
-  @Transactional Game reveal(final int gameId, final String gameOwner, final int row, final int column)
+  Game reveal(final int gameId, final String gameOwner, final int row, final int column)
   {
-    final Game game = getGameWithId(gameId, gameOwner);
-    final var cellReveal = game.reveal(row, column);
+    return move(gameId, gameOwner, game -> game.reveal(row, column));
+  }
 
-    if (cellReveal.hasNoChanges()) {
-      return game;
-    }
+  Game chord(final int gameId, final String gameOwner, final int row, final int column)
+  {
+    return move(gameId, gameOwner, game -> game.chord(row, column));
+  }
 
-    repository.updateGameWith(cellReveal);
-    return get(gameId);
+  Game play(final int gameId, final String gameOwner, final List<Move> moves)
+  {
+    return move(gameId, gameOwner, game -> game.play(moves));
   }
 
-  @Transactional Game flag(final int gameId, final String gameOwner, final int row, final int column)
+  Game flag(final int gameId, final String gameOwner, final int row, final int column)
   {
-    final Game game = getGameWithId(gameId, gameOwner);
-    final var cellFlag = game.flag(row, column);
+    return move(gameId, gameOwner, game -> game.flag(row, column));
+  }
 
-    if (cellFlag.hasNoChanges()) {
-      return game;
+  Game unflag(final int gameId, final String gameOwner, final int row, final int column)
+  {
+    return move(gameId, gameOwner, game -> game.unflag(row, column));
+  }
+
+  Game pause(final int gameId, final String gameOwner)
+  {
+    return locks.withLockOf(gameId, () -> {
+      if (writer != null) {
+        writer.flush(gameId); // pauses are rare, they are stored right away
+      }
+      return store(gameId, () -> tryToPause(gameId, gameOwner));
+    });
+  }
+
+  private Game tryToPause(final int gameId, final String gameOwner)
+  {
+    for (int retries = 0; ; retries++) {
+      final var game = getGameWithId(gameId, gameOwner);
+      if (!game.canBePaused()) {
+        return game;
+      }
+      try {
+        return repository.pauseGame(game);
+      } catch (final ConcurrentMove concurrentMove) {
+        cache.evict(gameId); // it is stale, read it again
+        retryOrFail(concurrentMove, retries);
+      }
     }
+  }
 
-    repository.updateGameWith(cellFlag);
-    return get(gameId);
+  /**
+   * Applies {@code move} on the game, storing its changes. Moves on the same game are serialized by {@link GameLocks},
+   * holding the lock until the transaction is committed (that's why moves aren't {@code @Transactional}), so the next
+   * move reads the changes of the previous one.
+   */
+  private Game move(final int gameId, final String gameOwner, final Function<Game, GameChange> move)
+  {
+    if (writer != null) {
+      return locks.withLockOf(gameId, () -> writeBehind(gameId, gameOwner, move));
+    }
+    return locks.withLockOf(gameId, () -> store(gameId, () -> tryToMove(gameId, gameOwner, move)));
   }
 
-  @Transactional Game unflag(final int gameId, final String gameOwner, final int row, final int column)
+  /**
+   * Applies {@code move} on the game in memory, queueing its changes to be stored by {@link MovesWriter}. The
+   * {@code finishedAt} of the game is taken from this node, and its play time is the one it had when read (both are
+   * set by the DB when the move is stored).
+   */
+  private Game writeBehind(final int gameId, final String gameOwner, final Function<Game, GameChange> move)
   {
-    final Game game = getGameWithId(gameId, gameOwner);
-    final var cellUnflag = game.unflag(row, column);
+    final var game = getGameWithId(gameId, gameOwner);
+    final var changes = move.apply(game);
 
-    if (cellUnflag.hasNoChanges()) {
+    if (changes.hasNoChanges()) {
       return game;
     }
-
-    repository.updateGameWith(cellUnflag);
-    return get(gameId);
+    writer.write(game, changes);
+    final var finishedAt = (changes.status == GameStatus.WON || changes.status == GameStatus.LOOSE) ? LocalDateTime.now() : game.finishedAt;
+    final var played = game.after(changes, finishedAt, game.playTime);
+    cache.put(played);
+    return played;
   }
 
-  Game pause(final int gameId, final String gameOwner)
+  /**
+   * Runs {@code update} within a transaction, caching the game as it is once committed. When it fails the cached game is
+   * evicted, as it can't be told if it is stale.
+   */
+  private Game store(final int gameId, final Supplier<Game> update)
   {
-    final var game = getGameWithId(gameId, gameOwner);
-    if (game.canBePaused()) {
-      repository.pauseGame(gameId);
-      return get(gameId);
+    final Game game;
+    try {
+      game = transactions.execute(transaction -> update.get());
+    } catch (final RuntimeException failure) {
+      cache.evict(gameId);
+      throw failure;
     }
+    cache.put(game);
     return game;
   }
 
+  /**
+   * When other move was stored on the game since it was read (as done by other nodes), the game is read again and
+   * {@code move} is applied on it, up to {@code games.moves.retries} times.
+   *
+   * @throws ConcurrentMove when the move couldn't be stored after all the retries.
+   */
+  private Game tryToMove(final int gameId, final String gameOwner, final Function<Game, GameChange> move)
+  {
+    for (int retries = 0; ; retries++) {
+      final var game = getGameWithId(gameId, gameOwner);
+      final var changes = move.apply(game);
+
+      if (changes.hasNoChanges()) {
+        return game;
+      }
+      try {
+        return repository.updateGameWith(game, changes);
+      } catch (final ConcurrentMove concurrentMove) {
+        cache.evict(gameId); // it is stale, read it again
+        retryOrFail(concurrentMove, retries);
+      }
+    }
+  }
+
+  private void retryOrFail(final ConcurrentMove concurrentMove, final int retries)
+  {
+    if (retries >= moveRetries) {
+      throw concurrentMove;
+    }
+    LOGGER.debug("retrying move, " + concurrentMove.getMessage());
+  }
+
   private Game getGameWithId(final int gameId, final String gameOwner)
   {
-    final var game = get(gameId);
-    if (!game.owner.equals(gameOwner)) {
-      throw new AccessDeniedException("You don't own this game.");
+    final var cached = cache.get(gameId);
+    if (cached != null && cached.owner.equals(gameOwner)) {
+      return cached;
     }
-    if (game.isFinished()) {
-      throw new AlreadyFinished(game);
+    if (writer != null) {
+      writer.flush(gameId); // moves written behind must be stored before reading the game
     }
-    return game;
+    return repository.findPlayableById(gameId, gameOwner); // it also tells why games of other owners can't be played
   }
 
   private Game get(final int gameId) { return repository.findById(gameId); }
@@ -0,0 +1,64 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import java.util.Arrays;
+
+/**
+ * Growable stack of {@code int}s, used as worklist of cell indexes while exploring a {@link Board}.
+ * <p>
+ * It starts small and grows only as much as the explored region needs, so its memory is bounded by the cells pushed
+ * on it and not by the size of the board.
+ */
+final class IntStack
+{
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] values;
+  private int size;
+
+  IntStack() { this(INITIAL_CAPACITY); }
+
+  IntStack(final int initialCapacity) { values = new int[Math.max(1, initialCapacity)]; }
+
+  void push(final int value)
+  {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, Math.multiplyExact(size, 2));
+    }
+    values[size++] = value;
+  }
+
+  int pop()
+  {
+    if (size == 0) {
+      throw new IllegalStateException("stack is empty.");
+    }
+    return values[--size];
+  }
+
+  boolean isEmpty() { return size == 0; }
+
+  int size() { return size; }
+}
@@ -0,0 +1,52 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A cell of a chunked {@link Game}'s board, which are shown one by one instead of as a whole board.
+ */
+final class KnownCell
+{
+  @JsonProperty final int row;
+  @JsonProperty final int column;
+  @JsonProperty final char value;
+
+  KnownCell(final int row, final int column, final char value)
+  {
+    this.row = row;
+    this.column = column;
+    this.value = value;
+  }
+
+  @Override public boolean equals(final Object o)
+  {
+    return (this == o) || (o instanceof KnownCell that && row == that.row && column == that.column && value == that.value);
+  }
+
+  @Override public int hashCode() { return 31 * (31 * row + column) + value; }
+
+  @Override public String toString() { return "KnownCell{row=" + row + ", column=" + column + ", value=" + value + '}'; }
+}
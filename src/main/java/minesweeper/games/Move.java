@@ -0,0 +1,62 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * A move to do on a {@link Game}, as part of a batch of moves.
+ */
+final class Move
+{
+  enum Action
+  {
+    REVEAL,
+    FLAG,
+    UNFLAG,
+    CHORD
+  }
+
+  @Schema(description = "What to do on the cell.")
+  @JsonProperty final @NotNull Action action;
+
+  @Schema(description = "Row of the cell on which the move is done.")
+  @JsonProperty final @PositiveOrZero int row;
+
+  @Schema(description = "Column of the cell on which the move is done.")
+  @JsonProperty final @PositiveOrZero int column;
+
+  Move(final Action action, final int row, final int column)
+  {
+    this.action = action;
+    this.row = row;
+    this.column = column;
+  }
+
+  @Override public String toString() { return "Move{action=" + action + ", row=" + row + ", column=" + column + '}'; }
+}
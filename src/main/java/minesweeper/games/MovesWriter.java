@@ -0,0 +1,361 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind storage of moves: moves are applied in memory and queued, and a flusher thread stores the pending moves
+ * of all the games every window, in one statement and one commit. The moves of each game done during a window are
+ * merged, so they are stored as a single update.
+ * <p>
+ * Moves queued in the last window are lost if the node crashes (a graceful shutdown {@link #close() drains} them). It
+ * assumes each game is played through one node: when a game was updated by other node its pending moves can't be
+ * stored, they are dropped (counted at {@code games.moves.write-behind.conflicts}) and the game is evicted from
+ * {@link GamesCache}, so it is read again. Moves queued after the dropped ones are dropped with them, as they were
+ * applied on top of them. Games are evicted holding their {@link GameLocks lock}, once the batch is released, so a
+ * move running at the same time can't cache the game again as it was before its moves were dropped.
+ * <p>
+ * A batch that can't be stored is queued again. Once the moves of a game went through {@link #MAX_ATTEMPTS} failed
+ * batches they are stored on their own, so one failing game doesn't hold back the rest, and if they still fail they
+ * are dropped too (counted at {@code games.moves.write-behind.dropped}) and the game is evicted.
+ * <p>
+ * Once {@link #close() closed}, moves are stored as they are written, as there is no flusher left to store them.
+ */
+final class MovesWriter implements AutoCloseable
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger(MovesWriter.class);
+
+  static final int MAX_ATTEMPTS = 3;
+
+  private final GamesRepository repository;
+  private final TransactionTemplate transactions;
+  private final GamesCache cache;
+  private final GameLocks locks;
+  private final LinkedHashMap<Integer, Pending> pending = new LinkedHashMap<>();
+  private final Map<Integer, CountDownLatch> storing = new HashMap<>(); // games at the batch being stored, guarded by pending
+  private boolean closed; // guarded by pending
+  private final ReentrantLock flushing = new ReentrantLock(); // only one batch is stored at a time
+  private final ScheduledExecutorService flusher;
+  private final Counter flushes;
+  private final Counter storedMoves;
+  private final Counter conflicts;
+  private final Counter dropped;
+
+  MovesWriter(
+      final GamesRepository repository,
+      final TransactionTemplate transactions,
+      final GamesCache cache,
+      final GameLocks locks,
+      final long windowMillis,
+      final MeterRegistry registry)
+  {
+    if (windowMillis < 1) {
+      throw new IllegalArgumentException("write-behind window must be at least 1 millisecond, " + windowMillis + " was defined.");
+    }
+    this.repository = repository;
+    this.transactions = transactions;
+    this.cache = cache;
+    this.locks = locks;
+    this.flushes = registry.counter("games.moves.write-behind.flushes");
+    this.storedMoves = registry.counter("games.moves.write-behind.moves");
+    this.conflicts = registry.counter("games.moves.write-behind.conflicts");
+    this.dropped = registry.counter("games.moves.write-behind.dropped");
+    registry.gauge("games.moves.write-behind.pending", this, MovesWriter::pendingGames);
+    this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+      final var thread = new Thread(task, "games-moves-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.flusher.scheduleWithFixedDelay(this::flushQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues {@code changes} done by a move on {@code game} (as it was before the move), or stores them right away when
+   * the writer is closed.
+   */
+  void write(final Game game, final GameChange changes)
+  {
+    final boolean storeNow;
+    synchronized (pending) {
+      pending.computeIfAbsent(game.id, gameId -> new Pending(gameId, game.version)).add(changes);
+      storeNow = closed;
+    }
+    if (storeNow) {
+      flush(game.id);
+    }
+  }
+
+  /**
+   * Stores the pending moves of a game, so it can be read from the DB.
+   * <p>
+   * It doesn't wait for the batch being stored, unless the batch has moves of the game. The batch and the pending moves
+   * are looked up together, so moves taken by a batch that starts meanwhile aren't missed.
+   */
+  void flush(final int gameId)
+  {
+    while (true) {
+      final CountDownLatch batch;
+      final Pending moves;
+      synchronized (pending) {
+        batch = storing.get(gameId);
+        moves = (batch == null) ? pending.remove(gameId) : null;
+      }
+      if (batch == null) {
+        if (moves != null) {
+          final var lost = new ArrayList<Integer>(1);
+          try {
+            store(List.of(moves), lost);
+          } finally {
+            forget(lost);
+          }
+        }
+        return;
+      }
+      awaitUninterruptibly(batch); // moves of a failed batch are queued again before it is released, look them up again
+    }
+  }
+
+  /**
+   * Stores the pending moves of all the games.
+   */
+  void flush()
+  {
+    flushing.lock();
+    try {
+      final List<Pending> batch;
+      final var stored = new CountDownLatch(1);
+      synchronized (pending) {
+        batch = new ArrayList<>(pending.values());
+        pending.clear();
+        batch.forEach(moves -> storing.put(moves.gameId, stored));
+      }
+      final var lost = new ArrayList<Integer>();
+      try {
+        if (!batch.isEmpty()) {
+          store(batch, lost);
+        }
+      } finally {
+        synchronized (pending) {
+          batch.forEach(moves -> storing.remove(moves.gameId));
+        }
+        stored.countDown();
+        forget(lost); // after the batch is released, as moves waiting for it hold the locks of their games
+      }
+    } finally {
+      flushing.unlock();
+    }
+  }
+
+  /**
+   * Stops the flusher, storing the moves still pending. Moves written afterwards are stored as they are written.
+   */
+  @Override public void close()
+  {
+    synchronized (pending) {
+      closed = true;
+    }
+    flusher.shutdown();
+    try {
+      if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+        LOGGER.warn("moves flusher didn't stop in time, draining pending moves anyway.");
+      }
+    } catch (final InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  int pendingGames()
+  {
+    synchronized (pending) {
+      return pending.size();
+    }
+  }
+
+  private void flushQuietly()
+  {
+    try {
+      flush();
+    } catch (final RuntimeException failure) {
+      LOGGER.error("pending moves couldn't be stored.", failure);
+    }
+  }
+
+  // games whose moves were dropped are added to lost, to be forgotten once the batch is released
+  private void store(final List<Pending> batch, final List<Integer> lost)
+  {
+    final Set<Integer> stored;
+    try {
+      stored = transactions.execute(transaction -> repository.storeMoves(batch));
+    } catch (final RuntimeException failure) {
+      final var retried = new ArrayList<Pending>(batch.size());
+      for (final var moves : batch) {
+        if (++moves.attempts < MAX_ATTEMPTS) {
+          retried.add(moves);
+        } else if (batch.size() == 1) {
+          drop(moves, failure, lost);
+        } else {
+          storeAlone(moves, lost);
+        }
+      }
+      requeue(retried);
+      throw failure;
+    }
+    stored(batch, stored, lost);
+  }
+
+  private void storeAlone(final Pending moves, final List<Integer> lost)
+  {
+    final Set<Integer> stored;
+    try {
+      stored = transactions.execute(transaction -> repository.storeMoves(List.of(moves)));
+    } catch (final RuntimeException failure) {
+      drop(moves, failure, lost);
+      return;
+    }
+    stored(List.of(moves), stored, lost);
+  }
+
+  private void stored(final List<Pending> batch, final Set<Integer> stored, final List<Integer> lost)
+  {
+    flushes.increment();
+    for (final var moves : batch) {
+      if (stored.contains(moves.gameId)) {
+        storedMoves.increment(moves.moves);
+      } else {
+        conflicts.increment();
+        lost.add(moves.gameId);
+        LOGGER.warn(moves.moves + " moves of Game#" + moves.gameId + " were dropped, it was updated by other node since version " + moves.version + ".");
+      }
+    }
+  }
+
+  private void drop(final Pending moves, final RuntimeException failure, final List<Integer> lost)
+  {
+    dropped.increment();
+    lost.add(moves.gameId);
+    LOGGER.error(moves.moves + " moves of Game#" + moves.gameId + " were dropped, they couldn't be stored after " + moves.attempts + " attempts.", failure);
+  }
+
+  // the games are read again from the DB, without their dropped moves nor the ones queued after them
+  private void forget(final List<Integer> lost)
+  {
+    for (final var gameId : lost) {
+      locks.withLockOf(gameId, () -> {
+        final Pending newer;
+        synchronized (pending) {
+          newer = pending.remove(gameId);
+        }
+        cache.evict(gameId);
+        if (newer != null) {
+          LOGGER.error(newer.moves + " moves of Game#" + gameId + " done after the dropped ones were dropped too.");
+        }
+        return null;
+      });
+    }
+  }
+
+  private static void awaitUninterruptibly(final CountDownLatch latch)
+  {
+    var interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (final InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // moves queued while the batch was being stored are newer than the ones at the batch
+  private void requeue(final List<Pending> batch)
+  {
+    synchronized (pending) {
+      final var newer = new LinkedHashMap<>(pending);
+      pending.clear();
+      for (final var moves : batch) {
+        pending.put(moves.gameId, moves);
+      }
+      newer.forEach((gameId, moves) -> pending.merge(gameId, moves, Pending::then));
+    }
+  }
+
+  /**
+   * Moves of a game not stored yet, merged as a single change.
+   */
+  static final class Pending
+  {
+    final int gameId;
+    final int version; // of the game before the first move
+    final CellChanges cells = new CellChanges();
+    GameStatus status;
+    int cellsToReveal;
+    int moves;
+    int attempts; // failed batches the moves were part of
+
+    private Pending(final int gameId, final int version)
+    {
+      this.gameId = gameId;
+      this.version = version;
+    }
+
+    private void add(final GameChange changes)
+    {
+      cells.addAll(changes.cells);
+      status = changes.status;
+      cellsToReveal = changes.cellsToReveal;
+      moves++;
+    }
+
+    private Pending then(final Pending newer)
+    {
+      cells.addAll(newer.cells);
+      status = newer.status;
+      cellsToReveal = newer.cellsToReveal;
+      moves += newer.moves;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+/**
+ * Revealed / flagged state of the cells of a board stored as a seed, packed 2 bits per cell.
+ * <p>
+ * Bit {@code 2 * cell} is set when the cell is revealed and bit {@code 2 * cell + 1} when it is flagged, numbering bits
+ * from the right within each byte (as postgres {@code get_bit} / {@code set_bit} do).
+ */
+final class Overlay
+{
+  private Overlay() { throw new UnsupportedOperationException(); }
+
+  static byte[] empty(final int cells) { return new byte[(2 * cells + 7) / 8]; }
+
+  /**
+   * @param layout  cells of the board as they were created (see {@link Game#board}).
+   * @param overlay state of the cells.
+   * @return a new board, with {@code overlay} state applied to {@code layout} cells.
+   */
+  static Board applyTo(final Board layout, final byte[] overlay)
+  {
+    final var board = layout.copy();
+    final var cells = board.size();
+    for (int index = 0; index < overlay.length; index++) {
+      if (overlay[index] == 0) {
+        continue; // nothing revealed or flagged for 4 cells
+      }
+      for (int cell = index * 4; cell < Math.min(cells, (index + 1) * 4); cell++) {
+        if (isSet(overlay, 2 * cell)) {
+          board.set(cell, -board.get(cell) - 1);
+        } else if (isSet(overlay, 2 * cell + 1)) {
+          board.set(cell, board.get(cell) + 10);
+        }
+      }
+    }
+    return board;
+  }
+
+  private static boolean isSet(final byte[] overlay, final int bit) { return ((overlay[bit >> 3] >> (bit & 7)) & 1) == 1; }
+}
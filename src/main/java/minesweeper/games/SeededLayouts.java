@@ -0,0 +1,85 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Boards stored as a seed are regenerated on load, this keeps the most recently used layouts so the games being played
+ * don't regenerate them on every move.
+ * <p>
+ * Layouts must never be modified, boards of games are built copying them (see {@link Overlay#applyTo(Board, byte[])}).
+ * Be aware that changing how {@link BoardBuilder} places mines for a seed changes the boards of every game stored as a
+ * seed.
+ */
+final class SeededLayouts
+{
+  private final long maxCells;
+  private final LinkedHashMap<Key, Board> layouts = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedCells;
+
+  SeededLayouts(final long maxCells) { this.maxCells = maxCells; }
+
+  Board layoutOf(final int rows, final int columns, final int mines, final long seed)
+  {
+    final var key = new Key(rows, columns, mines, seed);
+    synchronized (layouts) {
+      final var layout = layouts.get(key);
+      if (layout != null) {
+        return layout;
+      }
+    }
+
+    final var layout = new BoardBuilder(rows, columns).randomlyPlaceMines(mines, seed).calculateSurroundingMines().build();
+    put(mines, seed, layout);
+    return layout;
+  }
+
+  /**
+   * Keeps a layout just built for a seed, so it isn't regenerated when its game is loaded.
+   */
+  void put(final int mines, final long seed, final Board layout)
+  {
+    final var key = new Key(layout.rows, layout.columns, mines, seed);
+    synchronized (layouts) {
+      if (layouts.putIfAbsent(key, layout) == null) {
+        cachedCells += layout.size();
+        evictEldest();
+      }
+    }
+  }
+
+  private void evictEldest()
+  {
+    final var entries = layouts.entrySet().iterator();
+    while (cachedCells > maxCells && layouts.size() > 1) {
+      final Map.Entry<Key, Board> eldest = entries.next();
+      cachedCells -= eldest.getValue().size();
+      entries.remove();
+    }
+  }
+
+  private static record Key(int rows, int columns, int mines, long seed) {}
+}
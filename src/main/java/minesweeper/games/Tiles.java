@@ -0,0 +1,251 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Cells of a huge {@link Board}, split in {@link #SIZE}x{@link #SIZE} tiles which are generated the first time one of
+ * their cells is touched, so memory is proportional to the explored area instead of to the whole board.
+ * <p>
+ * Tiles only depend on the board dimensions, its mines and its seed: mines are spread so tile {@code t} has the mines
+ * that {@code floor(mines * cellsBefore(t) / cells)} says it should (adding up exactly to {@code mines}), and they are
+ * placed within each tile using a generator seeded from the board seed and the tile index. Counting the surrounding
+ * mines of a tile only needs the mines of its 8 neighbour tiles, which are placed (but not kept) to do it.
+ * <p>
+ * Copies share their tiles: a tile is cloned by the first {@link #set} done on it after a copy, so a move only copies
+ * the tiles it changes.
+ */
+final class Tiles
+{
+  static final int SIZE = 64;
+
+  private final int rows;
+  private final int columns;
+  private final int mines;
+  private final long seed;
+  private final int tileColumns;
+  private final Map<Integer, byte[]> generated;
+  private final Set<Integer> owned; // tiles which aren't shared with a copy, so they can be set in place
+
+  Tiles(final int rows, final int columns, final int mines, final long seed)
+  {
+    if (rows < 1) {
+      throw new IllegalArgumentException("Board must have at least 1 row.");
+    }
+    if (columns < 1) {
+      throw new IllegalArgumentException("Board must have at least 1 column.");
+    }
+    if (mines < 0) {
+      throw new IllegalArgumentException("Board must have 0 or more mines.");
+    }
+    if (mines >= (long) rows * columns) {
+      throw new IllegalArgumentException("Board must have less mines than cells.");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    this.mines = mines;
+    this.seed = seed;
+    this.tileColumns = (columns + SIZE - 1) / SIZE;
+    this.generated = new HashMap<>();
+    this.owned = new HashSet<>();
+  }
+
+  private Tiles(final Tiles tiles)
+  {
+    this.rows = tiles.rows;
+    this.columns = tiles.columns;
+    this.mines = tiles.mines;
+    this.seed = tiles.seed;
+    this.tileColumns = tiles.tileColumns;
+    this.generated = new HashMap<>(tiles.generated);
+    this.owned = new HashSet<>();
+    tiles.owned.clear(); // from now on its tiles are shared with this copy
+  }
+
+  int get(final int row, final int column) { return tileOf(row, column)[offsetOf(row, column)]; }
+
+  void set(final int row, final int column, final int value)
+  {
+    final var tile = (row / SIZE) * tileColumns + column / SIZE;
+    var cells = tileOf(row, column);
+    if (!owned.contains(tile)) {
+      cells = cells.clone();
+      generated.put(tile, cells);
+      owned.add(tile);
+    }
+    cells[offsetOf(row, column)] = (byte) value;
+  }
+
+  int generatedTiles() { return generated.size(); }
+
+  /**
+   * Visits every cell of the tiles generated so far, tile by tile (in row-major order of the tiles).
+   */
+  void forEachGeneratedCell(final CellVisitor visitor)
+  {
+    generated.keySet().stream().sorted().forEach(tile -> {
+      final var tileRow = tile / tileColumns;
+      final var tileColumn = tile % tileColumns;
+      final var width = widthOf(tileColumn);
+      final var cells = generated.get(tile);
+      for (int offset = 0; offset < cells.length; offset++) {
+        visitor.visit(tileRow * SIZE + offset / width, tileColumn * SIZE + offset % width, cells[offset]);
+      }
+    });
+  }
+
+  Tiles copy() { return new Tiles(this); }
+
+  private byte[] tileOf(final int row, final int column)
+  {
+    final var tileRow = row / SIZE;
+    final var tileColumn = column / SIZE;
+    return generated.computeIfAbsent(tileRow * tileColumns + tileColumn, tile -> generate(tileRow, tileColumn));
+  }
+
+  // cells of a tile without keeping it generated, so reading it doesn't change these tiles
+  private byte[] peekTile(final int tile)
+  {
+    final var cells = generated.get(tile);
+    return cells != null ? cells : generate(tile / tileColumns, tile % tileColumns);
+  }
+
+  private int offsetOf(final int row, final int column) { return (row % SIZE) * widthOf(column / SIZE) + (column % SIZE); }
+
+  private int heightOf(final int tileRow) { return Math.min(SIZE, rows - tileRow * SIZE); }
+
+  private int widthOf(final int tileColumn) { return Math.min(SIZE, columns - tileColumn * SIZE); }
+
+  private byte[] generate(final int tileRow, final int tileColumn)
+  {
+    final var height = heightOf(tileRow);
+    final var width = widthOf(tileColumn);
+
+    // mines of the tile plus a border of 1 cell taken from its neighbour tiles
+    final var paddedWidth = width + 2;
+    final var padded = new boolean[(height + 2) * paddedWidth];
+    for (int neighbourRow = Math.max(0, tileRow - 1); neighbourRow <= Math.min(tileRow + 1, (rows - 1) / SIZE); neighbourRow++) {
+      for (int neighbourColumn = Math.max(0, tileColumn - 1); neighbourColumn <= Math.min(tileColumn + 1, tileColumns - 1); neighbourColumn++) {
+        final var neighbourWidth = widthOf(neighbourColumn);
+        final var neighbourMines = minesOf(neighbourRow, neighbourColumn);
+        for (int cell = 0; cell < neighbourMines.length; cell++) {
+          if (neighbourMines[cell]) {
+            final var row = (neighbourRow - tileRow) * SIZE + cell / neighbourWidth + 1;
+            final var column = (neighbourColumn - tileColumn) * SIZE + cell % neighbourWidth + 1;
+            if (row >= 0 && row <= height + 1 && column >= 0 && column <= width + 1) {
+              padded[row * paddedWidth + column] = true;
+            }
+          }
+        }
+      }
+    }
+
+    final int[] neighbours = {-paddedWidth - 1, -paddedWidth, -paddedWidth + 1, -1, 1, paddedWidth - 1, paddedWidth, paddedWidth + 1};
+    final var cells = new byte[height * width];
+    for (int row = 0; row < height; row++) {
+      for (int column = 0; column < width; column++) {
+        final var center = (row + 1) * paddedWidth + column + 1;
+        if (padded[center]) {
+          cells[row * width + column] = Game.MINE;
+        } else {
+          int surroundingMines = 0;
+          for (final int neighbour : neighbours) {
+            if (padded[center + neighbour]) {
+              surroundingMines++;
+            }
+          }
+          cells[row * width + column] = (byte) surroundingMines;
+        }
+      }
+    }
+    return cells;
+  }
+
+  // Floyd's sampling of the mines of a tile, see BoardBuilder
+  private boolean[] minesOf(final int tileRow, final int tileColumn)
+  {
+    final var height = heightOf(tileRow);
+    final var width = widthOf(tileColumn);
+    final var first = cellsBefore(tileRow, tileColumn);
+    final var amount = (int) (minesBefore(first + (long) height * width) - minesBefore(first));
+    final var random = new Random(seed + 0x9E3779B97F4A7C15L * (tileRow * (long) tileColumns + tileColumn));
+
+    final var tileMines = new boolean[height * width];
+    for (int candidate = tileMines.length - amount; candidate < tileMines.length; candidate++) {
+      final var drawn = random.nextInt(candidate + 1);
+      if (tileMines[drawn]) {
+        tileMines[candidate] = true;
+      } else {
+        tileMines[drawn] = true;
+      }
+    }
+    return tileMines;
+  }
+
+  // cells of the tiles before the given one, tiles are numbered row-major
+  private long cellsBefore(final int tileRow, final int tileColumn)
+  {
+    return (long) tileRow * SIZE * columns + (long) heightOf(tileRow) * tileColumn * SIZE;
+  }
+
+  private long minesBefore(final long cells) { return mines * cells / ((long) rows * columns); }
+
+  /**
+   * Tiles are equal when they have the same dimensions, mines and seed, and the tiles generated by any of them have the
+   * same cells (tiles that neither generated yet would be generated equal). A tile generated by only one of them is
+   * generated by the other just to be compared, it isn't kept.
+   */
+  @Override public boolean equals(final Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Tiles that) || rows != that.rows || columns != that.columns || mines != that.mines || seed != that.seed) {
+      return false;
+    }
+    final var tiles = new HashSet<>(generated.keySet());
+    tiles.addAll(that.generated.keySet());
+    for (final var tile : tiles) {
+      if (!Arrays.equals(peekTile(tile), that.peekTile(tile))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override public int hashCode() { return Objects.hash(rows, columns, mines, seed); }
+
+  @FunctionalInterface
+  interface CellVisitor
+  {
+    void visit(int row, int column, int value);
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+CREATE OR REPLACE FUNCTION minesweeper.appendCellChanges(changesLog INTEGER[], changes INTEGER[])
+RETURNS INTEGER[]
+LANGUAGE sql IMMUTABLE STRICT AS $$
+    SELECT changesLog || changes;
+$$;
+
+COMMENT ON FUNCTION minesweeper.appendCellChanges(INTEGER[], INTEGER[]) IS $$Appends the cells (or values) changed by a
+move to the log of changes of a chunked board. Returns `NULL` when `changesLog` is `NULL` (the board isn't chunked).
+
+#### Parameters
+1. `changesLog`: cells (or values) changed by the previous moves of the game.
+2. `changes`: cells (or values) changed by the move.
+$$;
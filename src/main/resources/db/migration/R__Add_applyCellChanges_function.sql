@@ -0,0 +1,60 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+DROP FUNCTION IF EXISTS minesweeper.applyCellChanges(INTEGER[][], INTEGER[], INTEGER[]);
+
+CREATE OR REPLACE FUNCTION minesweeper.applyCellChanges(gameBoard BYTEA, changedCells INTEGER[], changedValues INTEGER[])
+RETURNS BYTEA
+LANGUAGE sql IMMUTABLE STRICT AS $$
+    -- the board is rebuilt at once (set_byte copies it on each call): the bytes between changed cells are copied as they
+    -- are, followed by the last value of each changed cell. Cells start after the header: version (1 byte), rows and
+    -- columns (4 bytes each)
+    WITH changes AS (
+        SELECT DISTINCT ON (change.cell) 9 + change.cell AS position, change.cellValue
+        FROM unnest(changedCells, changedValues) WITH ORDINALITY AS change(cell, cellValue, position)
+        ORDER BY change.cell, change.position DESC
+    ), segments AS (
+        SELECT changes.position,
+               substring(gameBoard FROM lag(changes.position, 1, -1) OVER byPosition + 2
+                                   FOR changes.position - lag(changes.position, 1, -1) OVER byPosition - 1) ||
+               set_byte(decode('00', 'hex'), 0, changes.cellValue & 255) AS segment
+        FROM changes
+        WINDOW byPosition AS (ORDER BY changes.position)
+    )
+    SELECT coalesce(string_agg(segments.segment, ''::BYTEA ORDER BY segments.position) ||
+                    substring(gameBoard FROM max(segments.position) + 2),
+                    gameBoard)
+    FROM segments;
+$$;
+
+COMMENT ON FUNCTION minesweeper.applyCellChanges(BYTEA, INTEGER[], INTEGER[]) IS $$Applies a list of cell changes to a
+packed game board (see `Games.board`).
+
+Cells are identified by their 0 based, row-major index (`row * columns + column`), the same way they are identified by
+the API backend. Returns `NULL` when `gameBoard` is `NULL` (the board is stored as a seed).
+
+#### Parameters
+1. `gameBoard`: cells of the game's board.
+2. `changedCells`: indexes of the cells to change.
+3. `changedValues`: new values of the cells to change, `changedValues[i]` is the value of `changedCells[i]`.
+$$;
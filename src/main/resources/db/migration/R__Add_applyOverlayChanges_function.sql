@@ -0,0 +1,64 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+CREATE OR REPLACE FUNCTION minesweeper.applyOverlayChanges(gameOverlay BYTEA, changedCells INTEGER[], changedValues INTEGER[])
+RETURNS BYTEA
+LANGUAGE sql IMMUTABLE STRICT AS $$
+    -- the overlay is rebuilt at once (set_bit copies it on each call): the bytes between changed ones are copied as they
+    -- are, and each changed byte (4 cells) is computed from the last value of its changed cells
+    WITH changes AS (
+        SELECT DISTINCT ON (change.cell) change.cell, change.cellValue
+        FROM unnest(changedCells, changedValues) WITH ORDINALITY AS change(cell, cellValue, position)
+        ORDER BY change.cell, change.position DESC
+    ), changedBytes AS (
+        SELECT changes.cell / 4 AS position,
+               bit_or(3 << (2 * (changes.cell % 4))) AS cleared,
+               bit_or(((CASE WHEN changes.cellValue < 0 THEN 1 ELSE 0 END) |
+                       (CASE WHEN changes.cellValue >= 10 THEN 2 ELSE 0 END)) << (2 * (changes.cell % 4))) AS changed
+        FROM changes
+        GROUP BY changes.cell / 4
+    ), segments AS (
+        SELECT changedBytes.position,
+               substring(gameOverlay FROM lag(changedBytes.position, 1, -1) OVER byPosition + 2
+                                     FOR changedBytes.position - lag(changedBytes.position, 1, -1) OVER byPosition - 1) ||
+               set_byte(decode('00', 'hex'), 0, (get_byte(gameOverlay, changedBytes.position) & ~changedBytes.cleared) | changedBytes.changed) AS segment
+        FROM changedBytes
+        WINDOW byPosition AS (ORDER BY changedBytes.position)
+    )
+    SELECT coalesce(string_agg(segments.segment, ''::BYTEA ORDER BY segments.position) ||
+                    substring(gameOverlay FROM max(segments.position) + 2),
+                    gameOverlay)
+    FROM segments;
+$$;
+
+COMMENT ON FUNCTION minesweeper.applyOverlayChanges(BYTEA, INTEGER[], INTEGER[]) IS $$Applies a list of cell changes to
+the overlay of a game whose board is stored as a seed.
+
+Cells are identified by their 0 based, row-major index, and their values are the ones of the board cells (negative
+values are revealed cells, values from `10` are flagged cells). Returns `NULL` when `gameOverlay` is `NULL`.
+
+#### Parameters
+1. `gameOverlay`: revealed / flagged state of the cells of the game.
+2. `changedCells`: indexes of the cells to change.
+3. `changedValues`: new values of the cells to change, `changedValues[i]` is the value of `changedCells[i]`.
+$$;
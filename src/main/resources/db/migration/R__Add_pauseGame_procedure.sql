@@ -21,18 +21,39 @@
  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  SOFTWARE.
  */
-CREATE OR REPLACE PROCEDURE minesweeper.pauseGame(IN gameId INTEGER)
+DROP PROCEDURE IF EXISTS minesweeper.pauseGame(IN INTEGER);
+DROP FUNCTION IF EXISTS minesweeper.pauseGame(INTEGER);
+
+CREATE OR REPLACE FUNCTION minesweeper.pauseGame(gameId INTEGER, gameVersion INTEGER)
+RETURNS BIGINT
 LANGUAGE plpgsql AS $$
+DECLARE
+    playtimeInMillis BIGINT;
 BEGIN
-    UPDATE minesweeper.Games SET status = 'PAUSED' WHERE id = gameId;
+    UPDATE minesweeper.Games
+    SET status      = 'PAUSED',
+        playtime    = playtime + coalesce(current_timestamp - activeSince, interval '0'),
+        activeSince = NULL,
+        version     = version + 1
+    WHERE id = gameId AND version = gameVersion
+    RETURNING minesweeper.playtimeInMillis(playtime, activeSince) INTO playtimeInMillis;
+
+    IF NOT FOUND THEN
+        RETURN NULL; -- other move updated the game since it was read
+    END IF;
+
     UPDATE minesweeper.PlayTimes SET finishedAt = current_timestamp WHERE game = gameId AND finishedAt IS NULL;
+
+    RETURN playtimeInMillis;
 END; $$;
 
-COMMENT ON PROCEDURE minesweeper.pauseGame(IN INTEGER) IS $$Marks a game as `PAUSED`.
+COMMENT ON FUNCTION minesweeper.pauseGame(INTEGER, INTEGER) IS $$Marks a game as `PAUSED`, returning its play time (in
+milliseconds) once paused. Returns `NULL`, without pausing it, when the game isn't at `gameVersion` anymore.
 
 It assumes that preconditions are accomplished (the game exists, it is in `PLAYING` status, and it has
 **ONE AND ONLY ONE** PlayTimes unfinished).
 
 #### Parameters
 1. `gameId`: unique identifier of the game to pause.
+2. `gameVersion`: version the game had when it was read.
 $$;
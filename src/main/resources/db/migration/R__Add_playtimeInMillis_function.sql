@@ -0,0 +1,35 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+CREATE OR REPLACE FUNCTION minesweeper.playtimeInMillis(playtime INTERVAL, activeSince TIMESTAMP)
+RETURNS BIGINT
+LANGUAGE sql STABLE AS $$
+    SELECT (extract(epoch FROM playtime + coalesce(current_timestamp - activeSince, interval '0')) * 1000)::BIGINT;
+$$;
+
+COMMENT ON FUNCTION minesweeper.playtimeInMillis(INTERVAL, TIMESTAMP) IS $$Play time of a game, in milliseconds.
+
+#### Parameters
+1. `playtime`: time the game was played before its current session.
+2. `activeSince`: instant in which the current session started, `NULL` if there is no session going on.
+$$;
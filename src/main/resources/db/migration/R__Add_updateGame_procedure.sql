@@ -21,23 +21,72 @@
  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  SOFTWARE.
  */
-CREATE OR REPLACE PROCEDURE minesweeper.updateGame(IN gameId INTEGER, IN gameStatus minesweeper.GameStatus, IN gameBoard INTEGER[][])
+DROP PROCEDURE IF EXISTS minesweeper.updateGame(IN INTEGER, IN minesweeper.GameStatus, IN INTEGER[][]);
+DROP PROCEDURE IF EXISTS minesweeper.updateGame(IN INTEGER, IN minesweeper.GameStatus, IN INTEGER[][], IN INTEGER);
+DROP PROCEDURE IF EXISTS minesweeper.updateGame(IN INTEGER, IN minesweeper.GameStatus, IN INTEGER[], IN INTEGER[], IN INTEGER);
+DROP FUNCTION IF EXISTS minesweeper.updateGame(INTEGER, minesweeper.GameStatus, INTEGER[], INTEGER[], INTEGER);
+DROP FUNCTION IF EXISTS minesweeper.updateGame(INTEGER, minesweeper.GameStatus, INTEGER[], INTEGER[], INTEGER, INTEGER);
+
+CREATE OR REPLACE FUNCTION minesweeper.updateGame(
+    gameId INTEGER,
+    gameStatus minesweeper.GameStatus,
+    changedCells INTEGER[],
+    changedValues INTEGER[],
+    gameCellsToReveal INTEGER,
+    gameVersion INTEGER,
+    gameMoves INTEGER DEFAULT 1)
+RETURNS TABLE(gameFinishedAt TIMESTAMP, gamePlaytimeInMillis BIGINT)
 LANGUAGE plpgsql AS $$
+DECLARE
+    resumed BOOLEAN; -- the game wasn't active before the move: it is started or resumed by it
 BEGIN
     CASE gameStatus
         WHEN 'PLAYING' THEN
 
-            UPDATE minesweeper.Games
-            SET status = gameStatus, board = gameBoard
-            WHERE id = gameId;
+            -- previous is the row as it was before the update, so it tells if the game was active
+            UPDATE minesweeper.Games game
+            SET status        = gameStatus,
+                board         = minesweeper.applyCellChanges(game.board, changedCells, changedValues),
+                overlay       = minesweeper.applyOverlayChanges(game.overlay, changedCells, changedValues),
+                loggedCells   = minesweeper.appendCellChanges(game.loggedCells, changedCells),
+                loggedValues  = minesweeper.appendCellChanges(game.loggedValues, changedValues),
+                cellsToReveal = gameCellsToReveal,
+                activeSince   = coalesce(game.activeSince, current_timestamp),
+                version       = game.version + gameMoves
+            FROM minesweeper.Games previous
+            WHERE game.id = gameId AND game.version = gameVersion AND previous.id = game.id
+            RETURNING game.finishedAt, minesweeper.playtimeInMillis(game.playtime, game.activeSince), previous.activeSince IS NULL
+            INTO gameFinishedAt, gamePlaytimeInMillis, resumed;
+
+            IF NOT FOUND THEN
+                RETURN; -- other move updated the game since it was read
+            END IF;
 
-            INSERT INTO minesweeper.playtimes(game) VALUES (gameId);
+            -- only the move that starts (or resumes) the game opens a session
+            IF resumed THEN
+                INSERT INTO minesweeper.PlayTimes(game, startedAt) VALUES (gameId, current_timestamp);
+            END IF;
 
         WHEN 'WON', 'LOOSE' THEN
 
             UPDATE minesweeper.Games
-            SET status = gameStatus, board = gameBoard, finishedAt = current_timestamp
-            WHERE id = gameId;
+            SET status        = gameStatus,
+                board         = minesweeper.applyCellChanges(board, changedCells, changedValues),
+                overlay       = minesweeper.applyOverlayChanges(overlay, changedCells, changedValues),
+                loggedCells   = minesweeper.appendCellChanges(loggedCells, changedCells),
+                loggedValues  = minesweeper.appendCellChanges(loggedValues, changedValues),
+                cellsToReveal = gameCellsToReveal,
+                finishedAt    = current_timestamp,
+                playtime      = playtime + coalesce(current_timestamp - activeSince, interval '0'),
+                activeSince   = NULL,
+                version       = version + gameMoves
+            WHERE id = gameId AND version = gameVersion
+            RETURNING finishedAt, minesweeper.playtimeInMillis(playtime, activeSince)
+            INTO gameFinishedAt, gamePlaytimeInMillis;
+
+            IF NOT FOUND THEN
+                RETURN; -- other move updated the game since it was read
+            END IF;
 
             UPDATE minesweeper.PlayTimes
             SET finishedAt = current_timestamp
@@ -53,10 +102,17 @@ BEGIN
                 USING ERRCODE = 'invalid_parameter_value',
                          HINT = 'Only PLAYING / WON / LOOSE GameStatus are allowed.';
     END CASE;
+
+    RETURN NEXT;
 END; $$;
 
-COMMENT ON PROCEDURE minesweeper.updateGame(IN INTEGER, IN minesweeper.GameStatus, IN INTEGER[][]) IS $$Updates a game
-to a new status and board.
+COMMENT ON FUNCTION minesweeper.updateGame(INTEGER, minesweeper.GameStatus, INTEGER[], INTEGER[], INTEGER, INTEGER, INTEGER) IS $$Updates
+a game to a new status, changing only the board cells touched by the move. Returns the `finishedAt` and the play time
+(in milliseconds) of the game after the update, so they don't need to be queried again. The play time is kept at
+`playtime` / `activeSince`, along with the `PlayTimes` of the game.
+
+The update is only done when the game is still at `gameVersion` (incrementing it by `gameMoves`), otherwise nothing is
+changed and no row is returned: other move was stored since the game was read.
 
 It assumes that preconditions are accomplished (the game exists, it is not transitioning to `PAUSED` status -see
 pauseGame for that-, and is not in WON or LOOSE status).
@@ -64,5 +120,9 @@ pauseGame for that-, and is not in WON or LOOSE status).
 #### Parameters
 1. `gameId`: unique identifier of the game to pause.
 2. `gameStatus`: status to which the game is transitioning.
-3. `gameBoard`: definition of the desired game cells board.
+3. `changedCells`: row-major indexes of the board cells changed by the move (see `applyCellChanges`).
+4. `changedValues`: new values of the changed cells, `changedValues[i]` is the value of `changedCells[i]`.
+5. `gameCellsToReveal`: amount of cells without mines that remain unrevealed after the move.
+6. `gameVersion`: version the game had when it was read.
+7. `gameMoves`: amount of moves whose changes are stored at once (`1` by default), as done by write-behind.
 $$;
@@ -0,0 +1,37 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+ALTER TABLE minesweeper.Games
+    ADD COLUMN cellsToReveal INTEGER;
+
+UPDATE minesweeper.Games game
+SET cellsToReveal = (SELECT count(*)
+                     FROM unnest(game.board) cell
+                     WHERE cell BETWEEN 0 AND 8
+                        OR cell BETWEEN 10 AND 18);
+
+ALTER TABLE minesweeper.Games
+    ALTER COLUMN cellsToReveal SET NOT NULL;
+
+COMMENT ON COLUMN minesweeper.Games.cellsToReveal IS $$Amount of cells without mines that are not revealed yet, when it
+reaches `0` the game is `WON`.$$;
@@ -0,0 +1,44 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+ALTER TABLE minesweeper.Games
+    ALTER COLUMN board DROP NOT NULL,
+    ADD COLUMN boardRows    INTEGER,
+    ADD COLUMN boardColumns INTEGER,
+    ADD COLUMN seed         BIGINT,
+    ADD COLUMN overlay      BYTEA,
+    ADD CONSTRAINT Games_board_or_seed CHECK (
+        board IS NOT NULL OR
+        (boardRows IS NOT NULL AND boardColumns IS NOT NULL AND seed IS NOT NULL AND overlay IS NOT NULL));
+
+COMMENT ON COLUMN minesweeper.Games.board IS $$Cells defined for the game's board, `NULL` when the board is stored as a
+`seed` plus an `overlay`.$$;
+COMMENT ON COLUMN minesweeper.Games.boardRows IS $$Rows of the game's board, only defined when the board is stored as a
+`seed`.$$;
+COMMENT ON COLUMN minesweeper.Games.boardColumns IS $$Columns of the game's board, only defined when the board is stored
+as a `seed`.$$;
+COMMENT ON COLUMN minesweeper.Games.seed IS $$Seed used to place the mines of the game's board, from which the board
+cells are regenerated when the game is loaded. `NULL` when the whole `board` is stored.$$;
+COMMENT ON COLUMN minesweeper.Games.overlay IS $$State of the cells of a board stored as a `seed`, 2 bits per cell: bit
+`2 * cell` is set when the cell is revealed and bit `2 * cell + 1` when it is flagged. `NULL` when the whole `board` is
+stored.$$;
@@ -0,0 +1,36 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+ALTER TABLE minesweeper.Games
+    ADD COLUMN loggedCells  INTEGER[],
+    ADD COLUMN loggedValues INTEGER[],
+    DROP CONSTRAINT Games_board_or_seed,
+    ADD CONSTRAINT Games_board_or_seed CHECK (
+        board IS NOT NULL OR
+        (boardRows IS NOT NULL AND boardColumns IS NOT NULL AND seed IS NOT NULL AND
+         (overlay IS NOT NULL OR (loggedCells IS NOT NULL AND loggedValues IS NOT NULL))));
+
+COMMENT ON COLUMN minesweeper.Games.loggedCells IS $$Cells changed by the moves done on a chunked board (one whose cells
+are generated from its `seed`, tile by tile), in the order they were done. `NULL` when the board isn't chunked.$$;
+COMMENT ON COLUMN minesweeper.Games.loggedValues IS $$Values set to `loggedCells`, `loggedValues[i]` is the value set to
+`loggedCells[i]`. `NULL` when the board isn't chunked.$$;
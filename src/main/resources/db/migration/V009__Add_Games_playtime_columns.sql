@@ -0,0 +1,40 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+ALTER TABLE minesweeper.Games
+    ADD COLUMN playtime    INTERVAL DEFAULT interval '0' NOT NULL,
+    ADD COLUMN activeSince TIMESTAMP;
+
+UPDATE minesweeper.Games game
+SET playtime    = coalesce((SELECT sum(play.finishedAt - play.startedAt)
+                            FROM minesweeper.PlayTimes play
+                            WHERE play.game = game.id AND play.finishedAt IS NOT NULL), interval '0'),
+    activeSince = (SELECT min(play.startedAt)
+                   FROM minesweeper.PlayTimes play
+                   WHERE play.game = game.id AND play.finishedAt IS NULL);
+
+COMMENT ON COLUMN minesweeper.Games.playtime IS $$Time the game was played, up to the start of the current session when
+it is being played (see `activeSince`). Maintained by `updateGame` and `pauseGame`, so reading the play time of a game
+doesn't need to sum its `PlayTimes`.$$;
+COMMENT ON COLUMN minesweeper.Games.activeSince IS $$Instant in which the current session of the game started, `NULL`
+when the game isn't being played (it wasn't started, is paused or is finished).$$;
@@ -0,0 +1,51 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+-- every PLAYING move used to open a PlayTimes row, and pausing or finishing the game closed all the open ones at once:
+-- rows closed at the same instant (or still open) belong to the same session, which started with the first of them.
+CREATE TEMPORARY TABLE CompactedPlayTimes AS
+SELECT game, min(startedAt) AS startedAt, finishedAt
+FROM minesweeper.PlayTimes
+GROUP BY game, finishedAt;
+
+DELETE FROM minesweeper.PlayTimes;
+
+INSERT INTO minesweeper.PlayTimes(game, startedAt, finishedAt)
+SELECT game, startedAt, finishedAt
+FROM CompactedPlayTimes;
+
+DROP TABLE CompactedPlayTimes;
+
+UPDATE minesweeper.Games game
+SET playtime    = coalesce((SELECT sum(play.finishedAt - play.startedAt)
+                            FROM minesweeper.PlayTimes play
+                            WHERE play.game = game.id AND play.finishedAt IS NOT NULL), interval '0'),
+    activeSince = (SELECT play.startedAt
+                   FROM minesweeper.PlayTimes play
+                   WHERE play.game = game.id AND play.finishedAt IS NULL);
+
+CREATE UNIQUE INDEX PlayTimes_open_session ON minesweeper.PlayTimes (game) WHERE finishedAt IS NULL;
+
+COMMENT ON INDEX minesweeper.PlayTimes_open_session IS $$A game has at most one session being played (not finished).$$;
+COMMENT ON TABLE minesweeper.PlayTimes IS $$Sessions in which Games were played: a session starts when the game passes
+to `PLAYING` (from `CREATED` or `PAUSED`), and finishes when it is paused, won or lost.$$;
@@ -0,0 +1,50 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+-- packed boards are: 1 byte with the format version (1), rows and columns as 4 bytes big-endian integers, and then a
+-- byte per cell in row-major order (the cell value, as a signed byte)
+CREATE FUNCTION minesweeper.packBoard(board INTEGER[][])
+RETURNS BYTEA
+LANGUAGE sql IMMUTABLE STRICT AS $$
+    SELECT decode('01', 'hex') || int4send(array_length(board, 1)) || int4send(array_length(board, 2)) ||
+           (SELECT string_agg(set_byte(decode('00', 'hex'), 0, cells.cell & 255), ''::BYTEA ORDER BY cells.position)
+            FROM unnest(board) WITH ORDINALITY AS cells(cell, position));
+$$;
+
+UPDATE minesweeper.Games
+SET boardRows    = array_length(board, 1),
+    boardColumns = array_length(board, 2)
+WHERE board IS NOT NULL;
+
+ALTER TABLE minesweeper.Games
+    ALTER COLUMN board TYPE BYTEA USING minesweeper.packBoard(board),
+    ALTER COLUMN boardRows SET NOT NULL,
+    ALTER COLUMN boardColumns SET NOT NULL;
+
+DROP FUNCTION minesweeper.packBoard(INTEGER[][]);
+
+COMMENT ON COLUMN minesweeper.Games.board IS $$Cells defined for the game's board, packed as: 1 byte with the format
+version (`1`), rows and columns as 4 bytes big-endian integers, and then a byte per cell in row-major order (the cell
+value as a signed byte). `NULL` when the board is stored as a `seed`.$$;
+COMMENT ON COLUMN minesweeper.Games.boardRows IS $$Rows of the game's board.$$;
+COMMENT ON COLUMN minesweeper.Games.boardColumns IS $$Columns of the game's board.$$;
@@ -0,0 +1,227 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+final class BoardBuilder_tests
+{
+  @Test void when_mines_are_placed_then_board_should_have_exactly_that_amount_of_mines()
+  {
+    //when
+    final var board = new BoardBuilder(16, 30).randomlyPlaceMines(GameLevel.EXPERT).build();
+
+    //then
+    assertThat(minesAt(board), is(GameLevel.EXPERT.mines));
+  }
+
+  @Test void when_almost_every_cell_of_a_1000x1000_board_is_a_mine_then_placement_should_not_degrade()
+  {
+    //when
+    final var builder = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                                                  () -> new BoardBuilder(1000, 1000).randomlyPlaceMines(999_000));
+
+    //then
+    assertThat(minesAt(builder.build()), is(999_000));
+    assertThat(builder.cellsToReveal(), is(1_000));
+  }
+
+  @Test void when_mines_are_placed_with_the_same_seed_then_boards_should_be_the_same()
+  {
+    //when
+    final var board = new BoardBuilder(16, 30).randomlyPlaceMines(99, 20201210L).calculateSurroundingMines().build();
+    final var sameBoard = new BoardBuilder(16, 30).randomlyPlaceMines(99, 20201210L).calculateSurroundingMines().build();
+    final var otherBoard = new BoardBuilder(16, 30).randomlyPlaceMines(99, 20201211L).calculateSurroundingMines().build();
+
+    //then
+    assertThat(board, is(equalTo(sameBoard)));
+    assertThat(board, is(not(equalTo(otherBoard))));
+  }
+
+  @Test void when_surrounding_mines_are_calculated_in_parallel_then_board_should_be_the_same_as_when_calculated_sequentially()
+  {
+    //when
+    final var sequential = new BoardBuilder(1500, 700).randomlyPlaceMines(200_000, 20201210L).calculateSurroundingMines().build();
+    final var parallel = new BoardBuilder(1500, 700).randomlyPlaceMines(200_000, 20201210L).calculateSurroundingMines(1).build();
+
+    //then
+    assertThat(parallel, is(equalTo(sequential)));
+  }
+
+  @Test void when_surrounding_mines_of_small_boards_are_calculated_with_bit_planes_then_every_cell_should_have_its_count()
+  {
+    final int[][] sizes = {{8, 8}, {16, 16}, {16, 30}, {1, 1}, {1, 37}, {37, 1}, {7, 9}, {3, 100}, {8, 64}};
+    for (final int[] size : sizes) {
+      //when
+      final var board = new BoardBuilder(size[0], size[1]).randomlyPlaceMines(size[0] * size[1] / 4, 20201210L)
+                                                          .calculateSurroundingMines()
+                                                          .build();
+
+      //then
+      assertThat(size[0] + "x" + size[1], board.toMatrix(), is(equalTo(surroundingMinesOf(board))));
+    }
+  }
+
+  @Test void when_surrounding_mines_are_counted_by_rows_then_board_should_be_the_same_as_when_counted_cell_by_cell()
+  {
+    final int[][] sizes = {{1, 2000}, {2000, 1}, {2, 300}, {300, 700}};
+    for (final int[] size : sizes) {
+      //when
+      final var cellByCell = new BoardBuilder(size[0], size[1]).randomlyPlaceMines(size[0] * size[1] / 5, 20201210L)
+                                                               .calculateSurroundingMines()
+                                                               .build();
+      final var byRows = new BoardBuilder(size[0], size[1]).countingByRows(true)
+                                                           .randomlyPlaceMines(size[0] * size[1] / 5, 20201210L)
+                                                           .calculateSurroundingMines()
+                                                           .build();
+
+      //then
+      assertThat(size[0] + "x" + size[1], byRows, is(equalTo(cellByCell)));
+      assertThat(size[0] + "x" + size[1], byRows.toMatrix(), is(equalTo(surroundingMinesOf(byRows))));
+    }
+  }
+
+  @Test void when_surrounding_mines_are_counted_by_rows_in_parallel_then_board_should_be_the_same_as_when_counted_cell_by_cell()
+  {
+    //when
+    final var cellByCell = new BoardBuilder(1500, 700).randomlyPlaceMines(200_000, 20201210L).calculateSurroundingMines().build();
+    final var byRows = new BoardBuilder(1500, 700).countingByRows(true)
+                                                  .randomlyPlaceMines(200_000, 20201210L)
+                                                  .calculateSurroundingMines(1)
+                                                  .build();
+
+    //then
+    assertThat(byRows, is(equalTo(cellByCell)));
+  }
+
+  @Test void when_a_board_is_chunked_then_its_tiles_should_have_the_mines_of_the_board_and_their_surrounding_mines_counted()
+  {
+    //when
+    final var board = Board.chunked(150, 200, 7_000, 20201210L);
+
+    //then
+    assertThat(minesAt(board), is(7_000));
+    assertThat(board.toMatrix(), is(equalTo(surroundingMinesOf(board))));
+    assertThat(board, is(equalTo(Board.chunked(150, 200, 7_000, 20201210L))));
+    assertThat(board, is(not(equalTo(Board.chunked(150, 200, 7_000, 20201211L)))));
+  }
+
+  @Test void when_a_cell_of_a_huge_chunked_board_is_touched_then_only_its_tile_should_be_generated()
+  {
+    //given
+    final var board = Board.chunked(40_000, 40_000, 160_000_000, 20201210L);
+
+    //when
+    board.get(20_000, 20_000);
+
+    //then
+    assertThat(board.generatedTiles(), is(1));
+  }
+
+  @Test void when_huge_chunked_boards_are_compared_then_only_the_tiles_touched_by_one_of_them_should_be_compared()
+  {
+    //given
+    final var board = Board.chunked(40_000, 40_000, 160_000_000, 20201210L);
+    final var other = Board.chunked(40_000, 40_000, 160_000_000, 20201210L);
+    board.get(20_000, 20_000);
+    other.set(100, 100, -other.get(100, 100) - 1);
+
+    //when
+    final var equal = board.equals(other);
+
+    //then
+    assertThat(equal, is(false));
+    assertThat(board.generatedTiles(), is(1));
+    assertThat(other.generatedTiles(), is(1));
+    assertThat(board.hashCode(), is(equalTo(other.hashCode())));
+  }
+
+  @Test void when_a_chunked_board_is_copied_then_setting_cells_of_one_of_them_should_not_change_the_other()
+  {
+    //given
+    final var board = Board.chunked(150, 200, 7_000, 20201210L);
+    final var hidden = board.get(10, 10);
+    final var copy = board.copy();
+
+    //when
+    copy.set(10, 10, -hidden - 1);
+    board.set(100, 150, board.get(100, 150) + 10);
+
+    //then
+    assertThat(board.get(10, 10), is(hidden));
+    assertThat(copy.get(10, 10), is(-hidden - 1));
+    assertThat(copy.get(100, 150), is(board.get(100, 150) - 10));
+  }
+
+  @Test void when_mines_are_as_many_as_cells_then_placement_should_fail()
+  {
+    //expect
+    final var tooManyMines = assertThrows(IllegalArgumentException.class, () -> new BoardBuilder(2, 2).randomlyPlaceMines(4));
+    assertEquals("Board must have less mines than cells.", tooManyMines.getMessage());
+  }
+
+  // counted cell by cell, as a reference for the other ways of counting them
+  private static int[][] surroundingMinesOf(final Board board)
+  {
+    final var counts = board.toMatrix();
+    for (int row = 0; row < board.rows; row++) {
+      for (int column = 0; column < board.columns; column++) {
+        if (counts[row][column] == Game.MINE) {
+          continue;
+        }
+        int mines = 0;
+        for (int neighbourRow = Math.max(0, row - 1); neighbourRow <= Math.min(board.rows - 1, row + 1); neighbourRow++) {
+          for (int neighbourColumn = Math.max(0, column - 1); neighbourColumn <= Math.min(board.columns - 1, column + 1); neighbourColumn++) {
+            if (board.get(neighbourRow, neighbourColumn) == Game.MINE) {
+              mines++;
+            }
+          }
+        }
+        counts[row][column] = mines;
+      }
+    }
+    return counts;
+  }
+
+  private static int minesAt(final Board board)
+  {
+    int mines = 0;
+    for (int index = 0; index < board.size(); index++) {
+      if (board.get(index) == Game.MINE) {
+        mines++;
+      }
+    }
+    return mines;
+  }
+}
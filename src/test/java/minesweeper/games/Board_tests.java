@@ -0,0 +1,70 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class Board_tests
+{
+  @Test void when_a_board_is_built_from_an_empty_matrix_then_it_should_fail_with_IllegalArgumentException()
+  {
+    //expect
+    final var noRows = assertThrows(IllegalArgumentException.class, () -> Board.of(new int[0][]));
+    assertEquals("board must have at least one row.", noRows.getMessage());
+    final var noColumns = assertThrows(IllegalArgumentException.class, () -> Board.of(new int[][]{{}}));
+    assertEquals("board must have at least one column.", noColumns.getMessage());
+  }
+
+  @Test void when_a_board_is_packed_then_unpacking_it_should_return_the_same_board()
+  {
+    //given
+    final var board = new BoardBuilder(16, 30).randomlyPlaceMines(GameLevel.EXPERT).build();
+    board.set(0, 0, -board.get(0, 0) - 1);
+    board.set(1, 1, board.get(1, 1) + 10);
+
+    //when
+    final var packed = board.pack();
+
+    //then
+    assertThat(packed.length, is(Board.PACKED_HEADER + 16 * 30));
+    assertThat(Board.unpack(packed), is(equalTo(board)));
+  }
+
+  @Test void when_a_packed_board_has_an_unknown_version_then_unpack_should_fail()
+  {
+    //given
+    final var packed = new Board(2, 2).pack();
+    packed[0] = 2;
+
+    //when
+    //then
+    assertThrows(IllegalArgumentException.class, () -> Board.unpack(packed));
+  }
+}
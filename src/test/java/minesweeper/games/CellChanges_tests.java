@@ -0,0 +1,65 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+final class CellChanges_tests
+{
+  @Test void when_a_column_of_a_1024_wide_board_is_changed_then_its_cells_should_be_spread_over_the_table()
+  {
+    //given
+    final var changes = new CellChanges();
+
+    //when a vertical opening is revealed
+    for (int row = 0; row < 1_000; row++) {
+      changes.put(row * 1024 + 7, -1);
+    }
+
+    //then
+    assertThat(changes.size(), is(1_000));
+    assertThat(changes.longestProbe(), is(lessThan(32)));
+    for (int row = 0; row < 1_000; row++) {
+      assertThat(changes.get(row * 1024 + 7, 0), is(-1));
+      assertThat(changes.get(row * 1024 + 8, 0), is(0));
+    }
+  }
+
+  @Test void when_a_cell_is_changed_twice_then_only_its_last_value_should_be_kept()
+  {
+    //given
+    final var changes = CellChanges.of(5, 10);
+
+    //when
+    changes.put(5, -1);
+
+    //then
+    assertThat(changes.size(), is(1));
+    assertThat(changes.get(5, 0), is(-1));
+  }
+}
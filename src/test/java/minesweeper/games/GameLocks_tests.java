@@ -0,0 +1,93 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+final class GameLocks_tests
+{
+  @Test void when_moves_of_games_sharing_a_stripe_run_concurrently_then_the_collision_should_be_counted()
+  {
+    //given
+    final var registry = new SimpleMeterRegistry();
+    final var locks = new GameLocks(4, registry);
+    final var locked = new CountDownLatch(1);
+    final var release = new CountDownLatch(1);
+    final var holder = CompletableFuture.runAsync(() -> locks.withLockOf(1, () -> {
+      locked.countDown();
+      await(release);
+      return null;
+    }));
+    await(locked);
+
+    //when
+    final var waiting = CompletableFuture.supplyAsync(() -> locks.withLockOf(5, () -> "moved")); // 5 shares stripe of 1
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      while (registry.counter("games.moves.lock.waits", "game", "other").count() == 0) {
+        Thread.onSpinWait();
+      }
+    });
+    release.countDown();
+
+    //then
+    assertThat(waiting.join(), is("moved"));
+    holder.join();
+    assertThat(registry.counter("games.moves.lock.acquired").count(), is(2.0));
+    assertThat(registry.counter("games.moves.lock.waits", "game", "same").count(), is(0.0));
+  }
+
+  @Test void when_moves_of_different_stripes_run_then_no_wait_should_be_counted()
+  {
+    //given
+    final var registry = new SimpleMeterRegistry();
+    final var locks = new GameLocks(4, registry);
+
+    //when
+    final var moved = locks.withLockOf(1, () -> locks.withLockOf(2, () -> "moved"));
+
+    //then
+    assertThat(moved, is("moved"));
+    assertThat(registry.counter("games.moves.lock.waits", "game", "other").count(), is(0.0));
+    assertThat(registry.counter("games.moves.lock.waits", "game", "same").count(), is(0.0));
+  }
+
+  private static void await(final CountDownLatch latch)
+  {
+    try {
+      latch.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
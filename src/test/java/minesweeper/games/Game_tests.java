@@ -0,0 +1,362 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+final class Game_tests
+{
+  private static final int BIG = 2000;
+
+  @Test void when_a_zero_cell_is_revealed_then_its_surroundings_should_be_revealed_too()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, 1, 9}, {0, 1, 1}, {0, 0, 0}}), 1, 8);
+
+    //when
+    final var change = game.reveal(2, 0);
+
+    //then
+    assertThat(change.status, is(GameStatus.WON));
+    assertThat(change.cellsToReveal, is(0));
+    final char[][] expectedBoard = {{' ', '1', '#'}, {' ', '1', '1'}, {' ', ' ', ' '}};
+    assertThat(gameWith(game.board.with(change.cells), game.mines, change.cellsToReveal).getBoard(), is(equalTo(expectedBoard)));
+  }
+
+  @Test void when_a_numbered_cell_is_revealed_then_only_one_cell_should_be_discounted_from_cellsToReveal()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, 1, 9}, {0, 1, 1}, {0, 0, 0}}), 1, 8);
+
+    //when
+    final var change = game.reveal(0, 1);
+
+    //then
+    assertThat(change.status, is(GameStatus.PLAYING));
+    assertThat(change.cellsToReveal, is(7));
+  }
+
+  @Test void when_a_zero_cell_is_revealed_then_only_its_opening_should_be_revealed()
+  {
+    //given
+    final var builder = new BoardBuilder(5, 5).placeMineAt(2, 0).placeMineAt(2, 2).placeMineAt(2, 4).calculateSurroundingMines();
+    final var game = gameWith(builder);
+
+    //when
+    final var change = game.reveal(0, 0);
+
+    //then
+    assertThat(change.status, is(GameStatus.PLAYING));
+    assertThat(change.cellsToReveal, is(22 - 10));
+    final char[][] expectedBoard = {
+        {' ', ' ', ' ', ' ', ' '},
+        {'1', '2', '1', '2', '1'},
+        {'#', '#', '#', '#', '#'},
+        {'#', '#', '#', '#', '#'},
+        {'#', '#', '#', '#', '#'}};
+    assertThat(gameWith(game.board.with(change.cells), game.mines, change.cellsToReveal).getBoard(), is(equalTo(expectedBoard)));
+  }
+
+  @Test void when_a_cell_of_a_2000x2000_board_without_mines_is_revealed_then_game_should_be_WON()
+  {
+    //given
+    final var game = gameWith(new BoardBuilder(BIG, BIG));
+
+    //when
+    final var change = game.reveal(BIG / 2, BIG / 2);
+
+    //then
+    final var board = game.board.with(change.cells);
+    assertThat(change.status, is(GameStatus.WON));
+    assertThat(revealedCellsOf(board), is(BIG * BIG));
+  }
+
+  @Test void when_a_cell_far_from_the_only_mine_of_a_2000x2000_board_is_revealed_then_game_should_be_WON()
+  {
+    //given
+    final var game = gameWith(new BoardBuilder(BIG, BIG).placeMineAt(BIG - 1, BIG - 1).calculateSurroundingMines());
+
+    //when
+    final var change = game.reveal(0, 0);
+
+    //then
+    final var board = game.board.with(change.cells);
+    assertThat(change.status, is(GameStatus.WON));
+    assertThat(revealedCellsOf(board), is(BIG * BIG - 1));
+    assertThat(board.get(BIG - 2, BIG - 2), is(-2)); // revealed '1'
+  }
+
+  @Test void when_a_cell_of_a_2000x2000_board_split_by_a_wall_of_mines_is_revealed_then_only_its_side_should_be_revealed()
+  {
+    //given
+    final var builder = new BoardBuilder(BIG, BIG);
+    for (int row = 0; row < BIG; row++) {
+      builder.placeMineAt(row, BIG / 2);
+    }
+    final var game = gameWith(builder.calculateSurroundingMines());
+
+    //when
+    final var change = game.reveal(0, 0);
+
+    //then
+    final var board = game.board.with(change.cells);
+    assertThat(change.status, is(GameStatus.PLAYING));
+    assertThat(revealedCellsOf(board), is(BIG * (BIG / 2)));
+    assertThat(change.cellsToReveal, is(game.cellsToReveal - BIG * (BIG / 2)));
+    assertThat(board.get(BIG / 2, BIG / 2 - 1), is(-4)); // revealed '3'
+    assertThat(board.get(BIG / 2, BIG / 2 + 1), is(lessThan(Game.MINE))); // still undiscovered
+    assertThat(board.get(BIG - 1, BIG - 1), is(0)); // still undiscovered
+  }
+
+  @Test void when_a_zero_cell_of_an_EXPERT_board_is_revealed_then_bit_planes_should_reveal_its_opening()
+  {
+    //given
+    final var builder = new BoardBuilder(GameLevel.EXPERT.rows, GameLevel.EXPERT.columns)
+        .randomlyPlaceMines(GameLevel.EXPERT.mines, 20201210L)
+        .calculateSurroundingMines();
+    final var game = gameWith(builder);
+    int zeroCell = 0;
+    while (game.board.get(zeroCell) != 0) {
+      zeroCell++;
+    }
+
+    //when
+    final var change = game.reveal(game.board.rowOf(zeroCell), game.board.columnOf(zeroCell));
+
+    //then
+    final var opening = openingOf(game.board, zeroCell);
+    assertThat(change.cells.size(), is(opening.size()));
+    for (final var cell : opening) {
+      assertThat(change.cells.get(cell, 0), is(-game.board.get(cell) - 1));
+    }
+  }
+
+  @Test void when_openings_of_an_EXPERT_board_are_revealed_by_consecutive_moves_then_bit_planes_should_be_shared_by_them()
+  {
+    //given
+    final var builder = new BoardBuilder(GameLevel.EXPERT.rows, GameLevel.EXPERT.columns)
+        .randomlyPlaceMines(GameLevel.EXPERT.mines, 20201210L)
+        .calculateSurroundingMines();
+    final var game = gameWith(builder);
+    int zeroCell = 0;
+    while (game.board.get(zeroCell) != 0) {
+      zeroCell++;
+    }
+    final var first = game.reveal(game.board.rowOf(zeroCell), game.board.columnOf(zeroCell));
+    final var played = game.after(first, null, Duration.ZERO);
+    int otherZeroCell = zeroCell;
+    while (played.board.get(otherZeroCell) != 0) {
+      otherZeroCell++;
+    }
+
+    //when
+    final var second = played.reveal(played.board.rowOf(otherZeroCell), played.board.columnOf(otherZeroCell));
+
+    //then
+    assertThat(played.board.bitboard(), is(sameInstance(game.board.bitboard())));
+    final var opening = openingOf(played.board, otherZeroCell);
+    opening.removeIf(cell -> played.board.get(cell) < 0);
+    assertThat(second.cells.size(), is(opening.size()));
+    for (final var cell : opening) {
+      assertThat(second.cells.get(cell, 0), is(-played.board.get(cell) - 1));
+    }
+  }
+
+  @Test void when_a_huge_chunked_game_is_shown_then_only_its_known_cells_should_be_listed()
+  {
+    //given
+    final var board = Board.chunked(40_000, 40_000, 160_000_000, 20201210L);
+    final var game = gameWith(board, 160_000_000, board.size() - 160_000_000);
+    final var played = game.after(game.flag(20_000, 20_000), null, Duration.ZERO);
+
+    //when
+    final var knownCells = played.getKnownCells();
+
+    //then
+    assertThat(played.getBoard(), is(nullValue()));
+    assertThat(knownCells, contains(new KnownCell(20_000, 20_000, '?')));
+    assertThat(played.board.generatedTiles(), is(1));
+  }
+
+  @Test void when_a_zero_cell_of_a_chunked_board_is_revealed_then_the_same_cells_as_in_the_whole_board_should_be_revealed()
+  {
+    //given
+    final var chunked = Board.chunked(200, 130, 1_500, 20201210L);
+    final var whole = Board.of(chunked.toMatrix());
+    final var chunkedGame = gameWith(chunked, 1_500, chunked.size() - 1_500);
+    final var wholeGame = gameWith(whole, 1_500, whole.size() - 1_500);
+    int zeroCell = 0;
+    while (whole.get(zeroCell) != 0) {
+      zeroCell++;
+    }
+
+    //when
+    final var chunkedChange = chunkedGame.reveal(chunked.rowOf(zeroCell), chunked.columnOf(zeroCell));
+    final var wholeChange = wholeGame.reveal(whole.rowOf(zeroCell), whole.columnOf(zeroCell));
+
+    //then
+    assertThat(chunkedChange.cellsToReveal, is(wholeChange.cellsToReveal));
+    assertThat(chunked.with(chunkedChange.cells).toMatrix(), is(equalTo(whole.with(wholeChange.cells).toMatrix())));
+  }
+
+  @Test void when_a_cell_with_as_many_flagged_neighbours_as_its_number_is_chorded_then_its_other_neighbours_should_be_revealed()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, -2, 19}, {0, 1, 1}, {0, 0, 0}}), 1, 7);
+
+    //when
+    final var change = game.chord(0, 1);
+
+    //then
+    assertThat(change.status, is(GameStatus.WON));
+    assertThat(change.cellsToReveal, is(0));
+    final char[][] expectedBoard = {{' ', '1', '?'}, {' ', '1', '1'}, {' ', ' ', ' '}};
+    assertThat(gameWith(game.board.with(change.cells), game.mines, change.cellsToReveal).getBoard(), is(equalTo(expectedBoard)));
+  }
+
+  @Test void when_a_cell_with_a_wrongly_flagged_neighbour_is_chorded_then_game_should_be_LOOSE()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, -2, 9}, {0, 11, 1}, {0, 0, 0}}), 1, 7);
+
+    //when
+    final var change = game.chord(0, 1);
+
+    //then
+    assertThat(change.status, is(GameStatus.LOOSE));
+  }
+
+  @Test void when_a_cell_without_enough_flagged_neighbours_is_chorded_then_nothing_should_change()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, -2, 9}, {0, 1, 1}, {0, 0, 0}}), 1, 7);
+
+    //when
+    final var change = game.chord(0, 1);
+
+    //then
+    assertThat(change.hasNoChanges(), is(true));
+  }
+
+  @Test void when_moves_are_played_then_their_changes_should_be_the_ones_of_playing_them_one_by_one()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, 1, 9}, {0, 1, 1}, {0, 0, 0}}), 1, 8);
+    final var moves = List.of(new Move(Move.Action.FLAG, 0, 2), new Move(Move.Action.REVEAL, 0, 1), new Move(Move.Action.CHORD, 0, 1));
+
+    //when
+    final var change = game.play(moves);
+
+    //then
+    assertThat(change.status, is(GameStatus.WON));
+    assertThat(change.cellsToReveal, is(0));
+    final char[][] expectedBoard = {{' ', '1', '?'}, {' ', '1', '1'}, {' ', ' ', ' '}};
+    assertThat(gameWith(game.board.with(change.cells), game.mines, change.cellsToReveal).getBoard(), is(equalTo(expectedBoard)));
+    assertThat("game board should not be changed by its moves", game.board.get(0, 2), is(Game.MINE));
+  }
+
+  @Test void when_a_move_finishes_the_game_then_the_moves_after_it_should_be_ignored()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, 1, 9}, {0, 1, 1}, {0, 0, 0}}), 1, 8);
+    final var moves = List.of(new Move(Move.Action.REVEAL, 0, 1), new Move(Move.Action.REVEAL, 0, 2), new Move(Move.Action.REVEAL, 2, 0));
+
+    //when
+    final var change = game.play(moves);
+
+    //then
+    assertThat(change.status, is(GameStatus.LOOSE));
+    assertThat(change.cells.size(), is(1));
+    assertThat(change.cellsToReveal, is(7));
+  }
+
+  @Test void when_a_cell_is_flagged_then_only_that_cell_should_be_changed()
+  {
+    //given
+    final var game = gameWith(Board.of(new int[][]{{0, 1, 9}, {0, 1, 1}, {0, 0, 0}}), 1, 8);
+
+    //when
+    final var change = game.flag(0, 2);
+
+    //then
+    assertThat(change.status, is(GameStatus.PLAYING));
+    assertThat(change.cells.size(), is(1));
+    assertThat(change.cells.cell(0), is(2));
+    assertThat(change.cells.value(0), is(19));
+  }
+
+  private static Game gameWith(final BoardBuilder builder) { return gameWith(builder.build(), builder.mines(), builder.cellsToReveal()); }
+
+  private static Game gameWith(final Board board, final int mines, final int cellsToReveal)
+  {
+    return new Game(1, "test@email.com", GameStatus.PLAYING, LocalDateTime.now(), null, Duration.ZERO, board, mines, cellsToReveal, 0);
+  }
+
+  // reference flood fill: cells connected to {@code cell} through cells without adjacent mines, plus their neighbours
+  private static Set<Integer> openingOf(final Board board, final int cell)
+  {
+    final var opening = new HashSet<Integer>();
+    final var pending = new ArrayDeque<Integer>(List.of(cell));
+    while (!pending.isEmpty()) {
+      final int index = pending.poll();
+      if (!opening.add(index) || board.get(index) != 0) {
+        continue;
+      }
+      final var row = board.rowOf(index);
+      final var column = board.columnOf(index);
+      for (int neighbourRow = Math.max(0, row - 1); neighbourRow <= Math.min(board.rows - 1, row + 1); neighbourRow++) {
+        for (int neighbourColumn = Math.max(0, column - 1); neighbourColumn <= Math.min(board.columns - 1, column + 1); neighbourColumn++) {
+          pending.add(board.index(neighbourRow, neighbourColumn));
+        }
+      }
+    }
+    return opening;
+  }
+
+  private static int revealedCellsOf(final Board board)
+  {
+    int revealed = 0;
+    for (int index = 0; index < board.size(); index++) {
+      if (board.get(index) < 0) {
+        revealed++;
+      }
+    }
+    return revealed;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+final class GamesCache_tests
+{
+  @Test void when_cached_cells_exceed_its_max_then_least_recently_used_games_should_be_evicted()
+  {
+    //given
+    final var registry = new SimpleMeterRegistry();
+    final var cache = new GamesCache(20, registry); // two 3x3 games
+    final var first = gameWith(1, GameStatus.PLAYING);
+    final var second = gameWith(2, GameStatus.PLAYING);
+    cache.put(first);
+    cache.put(second);
+    cache.get(1);
+
+    //when
+    cache.put(gameWith(3, GameStatus.PLAYING));
+
+    //then
+    assertThat(cache.get(1), is(sameInstance(first)));
+    assertThat(cache.get(2), is(nullValue()));
+    assertThat(cache.size(), is(2));
+    assertThat(registry.counter("cache.evictions", "cache", "games").count(), is(1.0));
+    assertThat(registry.counter("cache.gets", "cache", "games", "result", "hit").count(), is(2.0));
+    assertThat(registry.counter("cache.gets", "cache", "games", "result", "miss").count(), is(1.0));
+  }
+
+  @Test void when_a_finished_game_is_put_then_it_should_be_evicted()
+  {
+    //given
+    final var cache = new GamesCache(100, new SimpleMeterRegistry());
+    cache.put(gameWith(1, GameStatus.PLAYING));
+
+    //when
+    cache.put(gameWith(1, GameStatus.WON));
+
+    //then
+    assertThat(cache.get(1), is(nullValue()));
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test void when_a_chunked_game_is_put_then_it_should_not_be_cached()
+  {
+    //given
+    final var cache = new GamesCache(100, new SimpleMeterRegistry());
+    final var board = Board.chunked(3, 3, 1, 20201210L);
+    cache.put(gameWith(1, GameStatus.PLAYING));
+
+    //when
+    cache.put(new Game(1, "test@email.com", GameStatus.PLAYING, LocalDateTime.now(), null, Duration.ZERO, board, 1, 8, 0));
+
+    //then
+    assertThat(cache.get(1), is(nullValue()));
+    assertThat(cache.size(), is(0));
+  }
+
+  @Test void when_its_max_cells_is_0_then_no_game_should_be_cached()
+  {
+    //given
+    final var cache = new GamesCache(0, new SimpleMeterRegistry());
+
+    //when
+    cache.put(gameWith(1, GameStatus.PLAYING));
+
+    //then
+    assertThat(cache.get(1), is(nullValue()));
+  }
+
+  private static Game gameWith(final int id, final GameStatus status)
+  {
+    final var board = Board.of(new int[][]{{0, 1, 9}, {0, 1, 1}, {0, 0, 0}});
+    return new Game(id, "test@email.com", status, LocalDateTime.now(), null, Duration.ZERO, board, 1, 8, 0);
+  }
+}
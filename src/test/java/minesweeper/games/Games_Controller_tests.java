@@ -0,0 +1,161 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import minesweeper.security.AuthenticationService;
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Tags;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@FlywayTest
+@AutoConfigureEmbeddedDatabase
+@SpringBootTest(properties = "spring.main.allow-bean-definition-overriding=true")
+@AutoConfigureMockMvc
+@Transactional
+@Tags({@Tag("persistence"), @Tag("sql"), @Tag("web")})
+final class Games_Controller_tests
+{
+  @Autowired MockMvc mvc;
+  @Autowired JdbcTemplate db;
+  @Autowired AuthenticationService authentication;
+
+  GamesRepository repo;
+  String token;
+
+  // the data sources defined by DatabaseConfig are replaced by the embedded database
+  @TestConfiguration static class EmbeddedDataSources
+  {
+    @Bean @FlywayDataSource DataSource flywayDataSource(final DataSource dataSource) { return dataSource; }
+
+    @Bean DataSourceHealthIndicator dataSourceHealthIndicator(final DataSource dataSource) { return new DataSourceHealthIndicator(dataSource); }
+  }
+
+  @BeforeEach void setup()
+  {
+    repo = new GamesRepository(db);
+    token = "Bearer " + authentication.issueToken("test@email.com", Set.of("user"));
+  }
+
+  @Sql("test-account.sql") @Test void when_a_revealed_cell_with_its_mines_flagged_is_chorded_then_its_neighbours_should_be_revealed()
+    throws Exception
+  {
+    //given
+    final var board = Board.of(new int[][]{
+        {19, 1, 0},
+        {1, -2, 0},
+        {0, 0, 0}});
+    final var gameId = repo.createGameWith("test@email.com", board, 1, 7);
+
+    //expect
+    mvc.perform(put("/games/{gameId}/chord/{row}/{column}", gameId, 1, 1).header(HttpHeaders.AUTHORIZATION, token))
+       .andExpect(status().isOk())
+       .andExpect(jsonPath("$.status").value("WON"))
+       .andExpect(jsonPath("$.board[0]").value("*1 "))
+       .andExpect(jsonPath("$.board[1]").value("11 "))
+       .andExpect(jsonPath("$.board[2]").value("   "));
+  }
+
+  @Sql("test-account.sql") @Test void when_moves_are_posted_then_they_should_be_played_in_order()
+    throws Exception
+  {
+    //given
+    final var board = new Board(3, 3);
+    board.set(2, 2, Game.MINE);
+    board.set(1, 1, 1);
+    board.set(1, 2, 1);
+    board.set(2, 1, 1);
+    final var gameId = repo.createGameWith("test@email.com", board, 1, 8);
+
+    //expect
+    mvc.perform(post("/games/{gameId}/moves", gameId)
+                    .header(HttpHeaders.AUTHORIZATION, token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                             [{"action": "FLAG", "row": 2, "column": 2},
+                              {"action": "REVEAL", "row": 2, "column": 1},
+                              {"action": "UNFLAG", "row": 2, "column": 2}]
+                             """))
+       .andExpect(status().isOk())
+       .andExpect(jsonPath("$.status").value("PLAYING"))
+       .andExpect(jsonPath("$.board[0]").value("###"))
+       .andExpect(jsonPath("$.board[1]").value("###"))
+       .andExpect(jsonPath("$.board[2]").value("#1#"));
+  }
+
+  @Sql("test-account.sql") @Test void when_more_moves_than_allowed_are_posted_then_they_should_be_rejected()
+    throws Exception
+  {
+    //given
+    final var gameId = repo.createGameWith("test@email.com", new Board(3, 3), 0, 9);
+    final var moves = new StringBuilder("[");
+    for (int move = 0; move <= Games.MAX_MOVES_PER_REQUEST; move++) {
+      moves.append(move == 0 ? "" : ",").append("{\"action\": \"FLAG\", \"row\": 0, \"column\": 0}");
+    }
+    moves.append(']');
+
+    //expect
+    mvc.perform(post("/games/{gameId}/moves", gameId)
+                    .header(HttpHeaders.AUTHORIZATION, token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(moves.toString()))
+       .andExpect(status().isUnprocessableEntity());
+  }
+
+  @Sql("test-account.sql") @Test void when_a_custom_Game_has_more_cells_than_a_board_can_hold_then_it_should_be_rejected()
+    throws Exception
+  {
+    //expect
+    mvc.perform(post("/games/create/custom")
+                    .header(HttpHeaders.AUTHORIZATION, token)
+                    .param("rows", "50000")
+                    .param("columns", "50000")
+                    .param("mines", "10"))
+       .andExpect(status().isUnprocessableEntity())
+       .andExpect(jsonPath("$.errors").value("Board must have at most 2147483647 cells."));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import minesweeper.JdbcTemplateRepositoryTestCase;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// migrations run with their own connections, so the data they migrate is committed and nothing can be rolled back
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+final class Games_Migrations_tests extends JdbcTemplateRepositoryTestCase
+{
+  @Autowired Flyway flyway;
+
+  @AfterEach void migrateToLatest()
+  {
+    flyway.clean();
+    flyway.migrate();
+  }
+
+  @Test void when_playtime_columns_are_added_then_they_should_be_filled_from_the_PlayTimes_of_each_Game()
+  {
+    //given
+    migrateTo("8");
+    db().update("INSERT INTO minesweeper.Accounts(email, name, password) VALUES ('test@email.com', 'owner', 'password')");
+    db().update("""
+                INSERT INTO minesweeper.Games(id, owner, board, boardRows, boardColumns, mines, cellsToReveal)
+                VALUES (1, 'test@email.com', ARRAY[[0, 1, 9], [0, 1, 1], [0, 0, 0]], 3, 3, 1, 8),
+                       (2, 'test@email.com', ARRAY[[0, 1, 9], [0, 1, 1], [0, 0, 0]], 3, 3, 1, 8),
+                       (3, 'test@email.com', ARRAY[[0, 1, 9], [0, 1, 1], [0, 0, 0]], 3, 3, 1, 8)""");
+    db().update("""
+                INSERT INTO minesweeper.PlayTimes(game, startedAt, finishedAt)
+                VALUES (1, timestamp '2020-12-10 10:00:00', timestamp '2020-12-10 10:00:30'),
+                       (1, timestamp '2020-12-10 11:00:00', timestamp '2020-12-10 11:01:00'),
+                       (1, timestamp '2020-12-10 12:00:00', NULL),
+                       (2, timestamp '2020-12-10 10:00:00', timestamp '2020-12-10 10:00:02.5')""");
+
+    //when
+    migrateTo("9");
+
+    //then
+    assertThat(playtimeOf(1), is(Duration.ofSeconds(90)));
+    assertTrue(selectBoolean("SELECT activeSince = timestamp '2020-12-10 12:00:00' FROM minesweeper.Games WHERE id = ?", 1));
+    assertThat(playtimeOf(2), is(Duration.ofMillis(2500)));
+    assertTrue(selectBoolean("SELECT activeSince IS NULL FROM minesweeper.Games WHERE id = ?", 2));
+    assertThat(playtimeOf(3), is(equalTo(Duration.ZERO)));
+    assertTrue(selectBoolean("SELECT activeSince IS NULL FROM minesweeper.Games WHERE id = ?", 3));
+  }
+
+  private void migrateTo(final String version)
+  {
+    final var migrations = Flyway.configure().configuration(flyway.getConfiguration()).target(version).load();
+    if ("8".equals(version)) {
+      migrations.clean();
+    }
+    migrations.migrate();
+  }
+
+  private Duration playtimeOf(final int id)
+  {
+    final long millis = db().queryForObject("SELECT (extract(EPOCH FROM playtime) * 1000)::BIGINT FROM minesweeper.Games WHERE id = ?", Long.class, id);
+    return Duration.ofMillis(millis);
+  }
+}
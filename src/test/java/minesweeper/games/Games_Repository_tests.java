@@ -27,12 +27,14 @@ import minesweeper.JdbcTemplateRepositoryTestCase;
 import minesweeper.NotFound;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.jdbc.Sql;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 
 import static org.exparity.hamcrest.date.LocalDateTimeMatchers.within;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -47,11 +49,13 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
 {
-  private static final int[][] TEST_BOARD = {{0, 1, 9}, {0, 1, 1}, {0, 0, 0}};
+  private static final String N_GAMES = "Games_Repository_tests.when_N_Games_are_defined_then_findSummariesOf_should_return_all_of_them_sorted_by_creation_date.sql";
+  private static final Board TEST_BOARD = Board.of(new int[][]{{0, 1, 9}, {0, 1, 1}, {0, 0, 0}});
 
   GamesRepository repo;
 
@@ -86,10 +90,11 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
               () -> assertThat(game.playTime, is(notNullValue())),
               () -> assertThat(game.board, is(notNullValue())),
               () -> assertThat(game.getRows(), is(3)),
-              () -> assertThat(game.getColumns(), is(3)));
+              () -> assertThat(game.getColumns(), is(3)),
+              () -> assertThat(game.getMinesCount(), is(1)));
   }
 
-  @Sql @Test void when_Game_has_no_play_times_then_findById_should_assign_it_a_ZERO_playtime()
+  @Sql @Test void when_Game_was_never_played_then_findById_should_assign_it_a_ZERO_playtime()
   {
     //given
     oneGameIsDefinedWithId(1);
@@ -101,7 +106,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     assertThat(game.playTime, is(Duration.ZERO));
   }
 
-  @Sql @Test void when_Game_has_one_unfinished_play_time_then_findById_should_assign_time_lapsed_since_playtime_has_started_as_playtime()
+  @Sql @Test void when_Game_is_being_played_for_the_first_time_then_findById_should_assign_it_the_time_lapsed_since_activeSince_as_playtime()
   {
     //given
     oneGameIsDefinedWithId(1);
@@ -113,7 +118,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     assertThat(game.playTime, is(greaterThanOrEqualTo(Duration.ofSeconds(2))));
   }
 
-  @Sql @Test void when_Game_has_one_finished_play_time_then_findById_should_assign_it_the_time_lapsed_between_start_and_finish_as_playtime()
+  @Sql @Test void when_Game_is_not_being_played_then_findById_should_assign_it_its_stored_playtime()
   {
     //given
     oneGameIsDefinedWithId(1);
@@ -125,7 +130,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     assertThat(game.playTime, is(Duration.ofMillis(700)));
   }
 
-  @Sql @Test void when_Game_has_multiple_playTimes_then_findById_should_assign_the_sum_of_times_lapsed_between_start_and_finish_of_them_as_playtime()
+  @Sql @Test void when_Game_is_being_played_again_then_findById_should_assign_it_its_stored_playtime_plus_the_time_lapsed_since_activeSince()
   {
     //given
     oneGameIsDefinedWithId(1);
@@ -137,31 +142,81 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     assertThat(game.playTime, is(Duration.ofMillis(2700)));
   }
 
-  @Test void when_no_Game_is_defined_then_findAll_should_be_an_empty_list()
+  @Test void when_no_Game_is_defined_then_findSummariesOf_should_be_an_empty_list()
   {
     //given
     noGamesAreDefined();
 
     //when
-    final var games = repo.findAllOf("test@email.com");
+    final var games = repo.findSummariesOf("test@email.com", null, null, 10);
 
     //then
     assertThat(games, is(empty()));
   }
 
-  @Sql @Test void when_N_Games_are_defined_then_findAll_should_return_all_of_them_sorted_by_creation_date()
+  @Sql @Test void when_N_Games_are_defined_then_findSummariesOf_should_return_all_of_them_sorted_by_creation_date()
   {
     //given
     definedGamesCountIs(5);
 
     //when look for all Game instances
-    final var games = repo.findAllOf("test@email.com");
+    final var games = repo.findSummariesOf("test@email.com", null, null, 10);
 
     //then
     assertThat(games, hasSize(3));
     assertThat(games.get(0).id, is(equalTo(1))); // cant use bean property matcher as it has no getter
     assertThat(games.get(1).id, is(equalTo(3)));
     assertThat(games.get(2).id, is(equalTo(2)));
+    assertThat(games.get(0).rows, is(equalTo(3)));
+    assertThat(games.get(0).columns, is(equalTo(3)));
+    assertThat(games.get(0).mines, is(equalTo(1)));
+  }
+
+  @Sql(N_GAMES) @Test void when_a_cursor_is_provided_then_findSummariesOf_should_return_the_Games_created_after_it()
+  {
+    //given
+    definedGamesCountIs(5);
+    final var first = repo.findSummariesOf("test@email.com", null, null, 1);
+
+    //when
+    final var games = repo.findSummariesOf("test@email.com", null, new GamesPage.Cursor(first.get(0).creation, first.get(0).id), 10);
+
+    //then
+    assertThat(games, hasSize(2));
+    assertThat(games.get(0).id, is(equalTo(3)));
+    assertThat(games.get(1).id, is(equalTo(2)));
+  }
+
+  @Sql(N_GAMES) @Test void when_a_status_is_provided_then_findSummariesOf_should_return_only_the_Games_with_that_status()
+  {
+    //given
+    definedGamesCountIs(5);
+
+    //when
+    final var created = repo.findSummariesOf("test@email.com", GameStatus.CREATED, null, 10);
+    final var playing = repo.findSummariesOf("test@email.com", GameStatus.PLAYING, null, 10);
+
+    //then
+    assertThat(created, hasSize(3));
+    assertThat(playing, is(empty()));
+  }
+
+  @Sql(N_GAMES) @Test void when_Games_of_an_owner_are_exported_then_forEachGameOf_should_pass_all_of_them_sorted_by_creation_date()
+  {
+    //given
+    definedGamesCountIs(5);
+    final var exported = new ArrayList<Game>();
+
+    //when
+    repo.forEachGameOf("test@email.com", exported::add);
+
+    //then
+    assertThat(exported, hasSize(3));
+    assertThat(exported.get(0).id, is(equalTo(1)));
+    assertThat(exported.get(1).id, is(equalTo(3)));
+    assertThat(exported.get(2).id, is(equalTo(2)));
+    assertThat(exported.get(0).owner, is(equalTo("test@email.com")));
+    assertThat(exported.get(0).board, is(notNullValue()));
   }
 
   @Sql("test-account.sql") @Test void when_Game_is_created_then_its_assigned_id_is_returned()
@@ -170,7 +225,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     noGamesAreDefined();
 
     //when
-    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD);
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
 
     //then
     assertThat("with vanilla db the serial should NOT be 0", gameId, is(not(equalTo(0))));
@@ -182,7 +237,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     noGamesAreDefined();
 
     //when
-    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD);
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
     final var game = repo.findById(gameId);
 
     //then
@@ -196,7 +251,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     final var expectedCreation = LocalDateTime.now();
 
     //when
-    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD);
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
     final var game = repo.findById(gameId);
 
     //then
@@ -209,7 +264,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     noGamesAreDefined();
 
     //when
-    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD);
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
     final var game = repo.findById(gameId);
 
     //then
@@ -222,7 +277,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     noGamesAreDefined();
 
     //when
-    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD);
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
     final var game = repo.findById(gameId);
 
     //then
@@ -235,7 +290,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     noGamesAreDefined();
 
     //when
-    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD);
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
     final var game = repo.findById(gameId);
 
     //then
@@ -243,6 +298,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     assertThat(game.getColumns(), is(equalTo(3)));
     assertThat(game.getMinesCount(), is(equalTo(1)));
     assertThat(game.board, is(equalTo(TEST_BOARD)));
+    assertThat(game.cellsToReveal, is(equalTo(8)));
   }
 
   @Sql("test-account.sql") @Test void when_Game_is_created_then_all_board_cells_should_be_UNDISCOVERED()
@@ -251,7 +307,7 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     noGamesAreDefined();
 
     //when
-    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD);
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
     final var game = repo.findById(gameId);
 
     //then
@@ -259,6 +315,235 @@ final class Games_Repository_tests extends JdbcTemplateRepositoryTestCase
     assertThat(game.getBoard(), is(equalTo(expectedBoard)));
   }
 
+  @Sql("test-account.sql") @Test void when_seeded_Game_is_loaded_then_its_board_should_be_regenerated_with_revealed_and_flagged_cells()
+  {
+    //given
+    noGamesAreDefined();
+    final var layout = new BoardBuilder(3, 3).randomlyPlaceMines(1, 42L).calculateSurroundingMines().build();
+    final var gameId = repo.createSeededGameWith("test@email.com", layout, 1, 42L, 8);
+    final var changes = new CellChanges();
+    final var revealed = layout.get(0) == Game.MINE ? 1 : 0;
+    changes.put(revealed, -layout.get(revealed) - 1);
+    changes.put(8, layout.get(8) + 10);
+    repo.updateGameWith(repo.findById(gameId), new GameChange(gameId, GameStatus.PLAYING, changes, 7));
+
+    //when the layout is not cached
+    final var game = new GamesRepository(db()).findById(gameId);
+
+    //then
+    assertThat(game.board, is(equalTo(layout.with(changes))));
+    assertThat(game.getMinesCount(), is(equalTo(1)));
+    assertThat(game.cellsToReveal, is(equalTo(7)));
+  }
+
+  @Sql("test-account.sql") @Test void when_many_moves_of_a_seeded_Game_are_stored_then_its_board_should_be_regenerated_with_all_of_them()
+  {
+    //given
+    noGamesAreDefined();
+    final var layout = new BoardBuilder(10, 10).randomlyPlaceMines(10, 42L).calculateSurroundingMines().build();
+    final var gameId = repo.createSeededGameWith("test@email.com", layout, 10, 42L, 90);
+    var board = layout;
+    for (int move = 0; move < 3; move++) {
+      final var changes = new CellChanges();
+      for (int cell = move; cell < board.size(); cell += 3 + move) {
+        final var value = board.get(cell);
+        changes.put(cell, value >= 10 ? value - 10 : value + 10); // flags / unflags cells, some of them sharing bytes
+      }
+      repo.updateGameWith(repo.findById(gameId), new GameChange(gameId, GameStatus.PLAYING, changes, 90));
+      board = board.with(changes);
+    }
+
+    //when the layout is not cached
+    final var game = new GamesRepository(db()).findById(gameId);
+
+    //then
+    assertThat(game.board, is(equalTo(board)));
+  }
+
+  @Test void when_a_cell_is_changed_many_times_by_a_move_then_applyCellChanges_should_keep_its_last_value()
+  {
+    //when a packed board of 1 row and 3 columns is changed
+    final var board = db().queryForObject("SELECT encode(minesweeper.applyCellChanges(decode('010000000100000003000000', 'hex'), ARRAY[1, 0, 1], ARRAY[10, -1, -3]), 'hex')", String.class);
+
+    //then cell 0 is revealed (-1), cell 1 is revealed with 2 surrounding mines (-3) and cell 2 is left as it was
+    assertThat(board, is(equalTo("010000000100000003fffd00")));
+  }
+
+  @Test void when_a_cell_is_changed_many_times_by_a_move_then_applyOverlayChanges_should_keep_its_last_value()
+  {
+    //when
+    final var overlay = db().queryForObject("SELECT encode(minesweeper.applyOverlayChanges(decode('0000', 'hex'), ARRAY[1, 1, 5], ARRAY[11, -2, 12]), 'hex')", String.class);
+
+    //then cell 1 is revealed (bit 2) and cell 5 flagged (bit 11)
+    assertThat(overlay, is(equalTo("0408")));
+  }
+
+  @Sql("test-account.sql") @Test void when_chunked_Game_is_loaded_then_its_board_should_be_generated_with_the_changes_done_by_its_moves()
+  {
+    //given
+    noGamesAreDefined();
+    final var layout = Board.chunked(100, 100, 1_000, 42L);
+    final var gameId = repo.createChunkedGameWith("test@email.com", 100, 100, 1_000, 42L, 9_000);
+    final var safeCell = layout.get(0) == Game.MINE ? 1 : 0;
+    final var flagged = repo.updateGameWith(repo.findById(gameId), new GameChange(gameId, GameStatus.PLAYING, CellChanges.of(99, layout.get(99) + 10), 9_000));
+    repo.updateGameWith(flagged, new GameChange(gameId, GameStatus.PLAYING, CellChanges.of(safeCell, -layout.get(safeCell) - 1), 8_999));
+
+    //when
+    final var game = repo.findById(gameId);
+
+    //then
+    assertThat(game.board.isChunked(), is(true));
+    assertThat(game.board.get(99), is(equalTo(layout.get(99) + 10)));
+    assertThat(game.board.get(safeCell), is(equalTo(-layout.get(safeCell) - 1)));
+    assertThat(game.cellsToReveal, is(equalTo(8_999)));
+  }
+
+  @Sql("test-account.sql") @Test void when_Game_is_updated_then_the_returned_Game_should_be_the_same_as_the_one_found_after_the_update()
+  {
+    //given
+    noGamesAreDefined();
+    final var game = repo.findById(repo.createGameWith("test@email.com", TEST_BOARD, 1, 8));
+    final var reveal = game.reveal(2, 0);
+
+    //when
+    final var updated = repo.updateGameWith(game, reveal);
+
+    //then
+    final var found = repo.findById(game.id);
+    assertThat(updated.status, is(equalTo(GameStatus.WON)));
+    assertThat(updated.status, is(equalTo(found.status)));
+    assertThat(updated.finishedAt, is(equalTo(found.finishedAt)));
+    assertThat(updated.playTime, is(equalTo(found.playTime)));
+    assertThat(updated.board, is(equalTo(found.board)));
+    assertThat(updated.cellsToReveal, is(equalTo(found.cellsToReveal)));
+  }
+
+  @Sql("test-account.sql") @Test void when_Game_was_updated_since_it_was_read_then_updateGameWith_should_fail_with_ConcurrentMove()
+  {
+    //given
+    noGamesAreDefined();
+    final var game = repo.findById(repo.createGameWith("test@email.com", TEST_BOARD, 1, 8));
+    final var stale = repo.findById(game.id);
+    repo.updateGameWith(game, game.flag(0, 2));
+
+    //expect
+    assertThrows(ConcurrentMove.class, () -> repo.updateGameWith(stale, stale.reveal(2, 0)));
+    assertThat(repo.findById(game.id).status, is(not(equalTo(GameStatus.WON))));
+  }
+
+  @Sql("test-account.sql") @Test void when_Game_is_updated_then_its_version_should_be_incremented()
+  {
+    //given
+    noGamesAreDefined();
+    final var game = repo.findById(repo.createGameWith("test@email.com", TEST_BOARD, 1, 8));
+
+    //when
+    final var updated = repo.updateGameWith(game, game.flag(0, 2));
+
+    //then
+    assertThat(game.version, is(0));
+    assertThat(updated.version, is(1));
+    assertThat(repo.findById(game.id).version, is(1));
+  }
+
+  @Sql("test-account.sql") @Test void when_playing_Games_are_read_then_forEachPlayingGame_should_pass_them_while_their_cells_fit()
+  {
+    //given
+    noGamesAreDefined();
+    for (int i = 0; i < 2; i++) {
+      final var game = repo.findById(repo.createGameWith("test@email.com", TEST_BOARD, 1, 8));
+      repo.updateGameWith(game, game.flag(0, 2));
+    }
+    repo.createGameWith("test@email.com", TEST_BOARD, 1, 8); // not played yet
+
+    //when
+    final var all = new ArrayList<Game>();
+    repo.forEachPlayingGame(100, all::add);
+    final var fitting = new ArrayList<Game>();
+    repo.forEachPlayingGame(9, fitting::add);
+
+    //then
+    assertThat(all, hasSize(2));
+    assertTrue(all.stream().allMatch(game -> game.status == GameStatus.PLAYING));
+    assertThat(fitting, hasSize(1));
+  }
+
+  @Test void when_no_Game_exists_for_provided_id_then_findPlayableById_should_fail_with_NotFound()
+  {
+    //given
+    noGamesAreDefined();
+
+    //expect
+    final var notFound = assertThrows(NotFound.class, () -> repo.findPlayableById(1, "test@email.com"));
+    assertEquals("No Game is defined with id=1", notFound.getMessage());
+  }
+
+  @Sql("test-account.sql") @Test void when_Game_is_owned_by_other_account_then_findPlayableById_should_fail_with_AccessDenied()
+  {
+    //given
+    noGamesAreDefined();
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
+
+    //expect
+    assertThrows(AccessDeniedException.class, () -> repo.findPlayableById(gameId, "other@email.com"));
+  }
+
+  @Sql("test-account.sql") @Test void when_Game_is_finished_then_findPlayableById_should_fail_with_AlreadyFinished()
+  {
+    //given
+    noGamesAreDefined();
+    final var game = repo.findById(repo.createGameWith("test@email.com", TEST_BOARD, 1, 8));
+    repo.updateGameWith(game, game.reveal(0, 2));
+
+    //expect
+    assertThrows(AlreadyFinished.class, () -> repo.findPlayableById(game.id, "test@email.com"));
+  }
+
+  @Sql("test-account.sql") @Test void when_Game_can_be_played_by_its_owner_then_findPlayableById_should_return_it()
+  {
+    //given
+    noGamesAreDefined();
+    final var gameId = repo.createGameWith("test@email.com", TEST_BOARD, 1, 8);
+
+    //when
+    final var game = repo.findPlayableById(gameId, "test@email.com");
+
+    //then
+    assertThat(game.status, is(GameStatus.CREATED));
+    assertThat(game.board, is(equalTo(TEST_BOARD)));
+  }
+
+  @Sql("test-account.sql") @Test void when_many_moves_of_a_Game_are_stored_then_only_one_play_session_should_be_opened()
+  {
+    //given
+    noGamesAreDefined();
+    final var game = repo.findById(repo.createGameWith("test@email.com", Board.of(new int[][]{{1, 9}, {1, 1}}), 1, 3));
+
+    //when
+    final var firstMove = repo.updateGameWith(game, game.reveal(0, 0));
+    repo.updateGameWith(firstMove, firstMove.flag(0, 1));
+
+    //then
+    assertTrue(selectBoolean("SELECT count(*) = 1 FROM minesweeper.PlayTimes WHERE game = ? AND finishedAt IS NULL", game.id));
+  }
+
+  @Sql("test-account.sql") @Test void when_a_move_of_a_paused_Game_is_stored_then_a_new_play_session_should_be_opened()
+  {
+    //given
+    noGamesAreDefined();
+    final var game = repo.findById(repo.createGameWith("test@email.com", Board.of(new int[][]{{1, 9}, {1, 1}}), 1, 3));
+    final var paused = repo.pauseGame(repo.updateGameWith(game, game.reveal(0, 0)));
+    // the whole test runs in one transaction, so current_timestamp doesn't move: the first session is moved back
+    db().update("UPDATE minesweeper.PlayTimes SET startedAt = startedAt - interval '1 minute', finishedAt = finishedAt - interval '1 minute' WHERE game = ?", game.id);
+
+    //when
+    repo.updateGameWith(paused, paused.flag(0, 1));
+
+    //then
+    assertTrue(selectBoolean("SELECT count(*) = 2 FROM minesweeper.PlayTimes WHERE game = ?", game.id));
+    assertTrue(selectBoolean("SELECT count(*) = 1 FROM minesweeper.PlayTimes WHERE game = ? AND finishedAt IS NULL", game.id));
+  }
+
   private void noGamesAreDefined()
   {
     definedGamesCountIs(0);
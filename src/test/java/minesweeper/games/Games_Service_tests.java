@@ -0,0 +1,324 @@
+/*
+ The MIT License (MIT)
+
+ Copyright (c) 2020 Juan José GIL - matero@gmail.com
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ */
+package minesweeper.games;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import minesweeper.JdbcTemplateRepositoryTestCase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class Games_Service_tests extends JdbcTemplateRepositoryTestCase
+{
+  private static final int PLAYERS = 8;
+
+  GamesRepository repo;
+
+  @BeforeEach void setup() { repo = new GamesRepository(db()); }
+
+  // moves are stored by other threads, each one with its own connection, so nothing can be rolled back
+  @Sql("test-account.sql") @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  @Test void when_many_moves_are_done_concurrently_on_the_same_Game_by_many_nodes_then_all_of_them_should_be_stored()
+    throws Exception
+  {
+    //given
+    final var node = gamesService(PLAYERS);
+    final var otherNode = gamesService(PLAYERS); // it doesn't share locks with node, moves conflict at the DB
+
+    //expect
+    flagConcurrently(cell -> (cell % 2 == 0) ? node : otherNode);
+  }
+
+  @Sql("test-account.sql") @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  @Test void when_many_moves_are_done_concurrently_on_the_same_Game_by_one_node_then_they_should_be_stored_without_conflicts()
+    throws Exception
+  {
+    //given
+    final var node = gamesService(0);
+
+    //expect
+    flagConcurrently(cell -> node);
+  }
+
+  @Sql("test-account.sql") @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  @Test void when_moves_are_written_behind_then_they_should_be_stored_as_one_update_once_drained()
+  {
+    //given
+    final var transactions = new TransactionTemplate(new DataSourceTransactionManager(db().getDataSource()));
+    final var node = new GamesService(repo, transactions, new SimpleMeterRegistry(), settings(0, 60_000));
+    final var board = new Board(4, 4);
+    board.set(3, 3, Game.MINE);
+    final var gameId = repo.createGameWith("test@email.com", board, 1, 15);
+    try {
+      //when
+      node.flag(gameId, "test@email.com", 0, 0);
+      node.flag(gameId, "test@email.com", 0, 1);
+      final var played = node.unflag(gameId, "test@email.com", 0, 0);
+      final var beforeDrain = repo.findById(gameId);
+      node.drainMoves();
+
+      //then
+      final var stored = repo.findById(gameId);
+      assertThat(beforeDrain.version, is(0));
+      assertThat(played.version, is(3));
+      assertThat(stored.version, is(3));
+      assertThat(stored.status, is(GameStatus.PLAYING));
+      assertThat(stored.board, is(equalTo(played.board)));
+      assertThat(stored.board.get(0, 0), is(0));
+      assertThat(stored.board.get(0, 1), is(10));
+    } finally {
+      deleteGame(gameId);
+    }
+  }
+
+  @Sql("test-account.sql") @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  @Test void when_Games_are_exported_then_they_should_be_read_through_a_cursor_without_generating_chunked_boards()
+    throws Exception
+  {
+    //given
+    final var node = gamesService(0);
+    final var json = new ObjectMapper().findAndRegisterModules();
+    final var gameId = repo.createGameWith("test@email.com", new Board(3, 3), 0, 9);
+    final var chunkedGameId = repo.createChunkedGameWith("test@email.com", 40_000, 40_000, 160_000_000, 42L, 1_440_000_000);
+    try {
+      final var autoCommits = new ArrayList<Boolean>();
+      final var exported = new ArrayList<Game>();
+
+      //when
+      node.exportGamesOf("test@email.com", game -> {
+        try {
+          autoCommits.add(DataSourceUtils.getConnection(db().getDataSource()).getAutoCommit());
+          json.writeValueAsBytes(game);
+        } catch (final SQLException | JsonProcessingException e) {
+          throw new IllegalStateException(e);
+        }
+        exported.add(game);
+      });
+
+      //then rows are fetched through a cursor only when the connection doesn't auto-commit
+      assertThat(autoCommits, contains(false, false));
+      assertThat(exported.get(0).id, is(gameId));
+      assertThat(exported.get(1).id, is(chunkedGameId));
+      assertThat(exported.get(1).board.generatedTiles(), is(0));
+    } finally {
+      db().update("DELETE FROM minesweeper.Games WHERE id = ?", gameId);
+      deleteGame(chunkedGameId);
+    }
+  }
+
+  @Sql("test-account.sql") @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  @Test void when_the_moves_of_a_Game_written_behind_can_not_be_stored_then_they_should_be_dropped_without_holding_back_the_rest()
+  {
+    //given
+    final var transactions = new TransactionTemplate(new DataSourceTransactionManager(db().getDataSource()));
+    final var registry = new SimpleMeterRegistry();
+    final var writer = new MovesWriter(repo, transactions, new GamesCache(1_000_000, registry), new GameLocks(16, registry), 60_000, registry);
+    final var board = new Board(4, 4);
+    board.set(3, 3, Game.MINE);
+    final var gameId = repo.createGameWith("test@email.com", board, 1, 15);
+    final var failingGameId = repo.createGameWith("test@email.com", board, 1, 15);
+    try {
+      final var game = repo.findById(gameId);
+      writer.write(game, game.flag(0, 0));
+      final var flagged = new CellChanges();
+      flagged.put(0, 10);
+      writer.write(repo.findById(failingGameId), new GameChange(failingGameId, GameStatus.PAUSED, flagged, 15)); // updateGame rejects it
+
+      //when
+      for (int attempt = 0; attempt < MovesWriter.MAX_ATTEMPTS; attempt++) {
+        assertThrows(DataAccessException.class, writer::flush);
+      }
+
+      //then
+      assertThat(writer.pendingGames(), is(0));
+      assertThat(repo.findById(gameId).board.get(0, 0), is(10));
+      assertThat(repo.findById(failingGameId).version, is(0));
+      assertThat(registry.counter("games.moves.write-behind.dropped").count(), is(1.0));
+    } finally {
+      writer.close();
+      db().update("DELETE FROM minesweeper.PlayTimes WHERE game = ?", failingGameId);
+      db().update("DELETE FROM minesweeper.Games WHERE id = ?", failingGameId);
+      deleteGame(gameId);
+    }
+  }
+
+  @Sql("test-account.sql") @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  @Test void when_the_moves_of_a_Game_are_flushed_while_a_batch_with_them_is_being_stored_then_it_should_wait_for_the_batch()
+    throws Exception
+  {
+    //given
+    final var transactions = new TransactionTemplate(new DataSourceTransactionManager(db().getDataSource()));
+    final var registry = new SimpleMeterRegistry();
+    final var storing = new CountDownLatch(1);
+    final var release = new CountDownLatch(1);
+    final var blocking = new GamesRepository(db())
+    {
+      @Override Set<Integer> storeMoves(final List<MovesWriter.Pending> batch)
+      {
+        storing.countDown();
+        try {
+          release.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.storeMoves(batch);
+      }
+    };
+    final var writer = new MovesWriter(blocking, transactions, new GamesCache(1_000_000, registry), new GameLocks(16, registry), 60_000, registry);
+    final var board = new Board(4, 4);
+    board.set(3, 3, Game.MINE);
+    final var gameId = repo.createGameWith("test@email.com", board, 1, 15);
+    final var executor = Executors.newFixedThreadPool(2);
+    try {
+      final var game = repo.findById(gameId);
+      writer.write(game, game.flag(0, 0));
+      final var batch = executor.submit(() -> writer.flush());
+      assertTrue(storing.await(10, TimeUnit.SECONDS));
+
+      //when
+      final var flushed = executor.submit(() -> writer.flush(gameId));
+
+      //then
+      assertThrows(TimeoutException.class, () -> flushed.get(200, TimeUnit.MILLISECONDS));
+      release.countDown();
+      batch.get(10, TimeUnit.SECONDS);
+      flushed.get(10, TimeUnit.SECONDS);
+      assertThat(repo.findById(gameId).board.get(0, 0), is(10));
+      assertThat(writer.pendingGames(), is(0));
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+      writer.close();
+      deleteGame(gameId);
+    }
+  }
+
+  @Sql("test-account.sql") @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  @Test void when_moves_are_done_after_the_written_behind_ones_are_drained_then_they_should_be_stored_right_away()
+  {
+    //given
+    final var transactions = new TransactionTemplate(new DataSourceTransactionManager(db().getDataSource()));
+    final var node = new GamesService(repo, transactions, new SimpleMeterRegistry(), settings(0, 60_000));
+    final var board = new Board(4, 4);
+    board.set(3, 3, Game.MINE);
+    final var gameId = repo.createGameWith("test@email.com", board, 1, 15);
+    try {
+      node.flag(gameId, "test@email.com", 0, 0);
+      node.drainMoves();
+
+      //when
+      final var played = node.flag(gameId, "test@email.com", 0, 1);
+
+      //then
+      final var stored = repo.findById(gameId);
+      assertThat(stored.version, is(played.version));
+      assertThat(stored.board.get(0, 0), is(10));
+      assertThat(stored.board.get(0, 1), is(10));
+    } finally {
+      deleteGame(gameId);
+    }
+  }
+
+  private GamesService gamesService(final int moveRetries)
+  {
+    final var transactions = new TransactionTemplate(new DataSourceTransactionManager(db().getDataSource()));
+    return new GamesService(repo, transactions, new SimpleMeterRegistry(), settings(moveRetries, 0));
+  }
+
+  private static GamesProperties settings(final int moveRetries, final long writeBehindWindowMillis)
+  {
+    return new GamesProperties(new GamesProperties.Storage(false),
+                               new GamesProperties.Board(1_000_000, false, 16_000_000),
+                               new GamesProperties.Moves(moveRetries, 16, writeBehindWindowMillis),
+                               new GamesProperties.Cache(1_000_000));
+  }
+
+  private void flagConcurrently(final IntFunction<GamesService> nodeOfCell) throws Exception
+  {
+    final var board = new Board(4, 4);
+    board.set(3, 3, Game.MINE);
+    final var gameId = repo.createGameWith("test@email.com", board, 1, 15);
+    final var executor = Executors.newFixedThreadPool(PLAYERS);
+    try {
+      final var start = new CountDownLatch(1);
+      final var played = new ArrayList<Future<Game>>(PLAYERS);
+      for (int cell = 0; cell < PLAYERS; cell++) {
+        final var node = nodeOfCell.apply(cell);
+        final var row = board.rowOf(cell);
+        final var column = board.columnOf(cell);
+        played.add(executor.submit(() -> {
+          start.await();
+          return node.flag(gameId, "test@email.com", row, column);
+        }));
+      }
+
+      start.countDown();
+      for (final var move : played) {
+        move.get(30, TimeUnit.SECONDS);
+      }
+
+      final var game = repo.findById(gameId);
+      assertThat(game.version, is(PLAYERS));
+      for (int cell = 0; cell < PLAYERS; cell++) {
+        assertThat("cell " + cell + " should be flagged", game.board.get(cell), is(board.get(cell) + 10));
+      }
+    } finally {
+      executor.shutdownNow();
+      deleteGame(gameId);
+    }
+  }
+
+  private void deleteGame(final int gameId)
+  {
+    db().update("DELETE FROM minesweeper.PlayTimes WHERE game = ?", gameId);
+    db().update("DELETE FROM minesweeper.Games WHERE id = ?", gameId);
+    db().update("DELETE FROM minesweeper.Accounts WHERE email = 'test@email.com'");
+  }
+}
@@ -24,5 +24,5 @@
 INSERT INTO minesweeper.Accounts(email, name, password)
 VALUES ('test@email.com', 'owner', 'password');
 
-INSERT INTO minesweeper.Games(id, owner, status, creation, finishedAt, board)
-VALUES (1, 'test@email.com', 'WON', '2008-03-20'::date, '2008-03-21'::date, '{{1,2,3},{4,5,6},{7,8,9}}');
+INSERT INTO minesweeper.Games(id, owner, status, creation, finishedAt, board, boardRows, boardColumns, mines, cellsToReveal)
+VALUES (1, 'test@email.com', 'WON', '2008-03-20'::date, '2008-03-21'::date, decode('010000000300000003010203040506070809', 'hex'), 3, 3, 1, 8);
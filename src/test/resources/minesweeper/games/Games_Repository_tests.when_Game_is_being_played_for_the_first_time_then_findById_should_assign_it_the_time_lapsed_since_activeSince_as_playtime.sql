@@ -24,8 +24,8 @@ SOFTWARE.
 INSERT INTO minesweeper.Accounts(email, name, password)
 VALUES ('test@email.com', 'owner', 'password');
 
-INSERT INTO minesweeper.Games(id, owner, board)
-VALUES (1, 'test@email.com', '{{1,2,3},{4,5,6},{7,8,9}}');
+INSERT INTO minesweeper.Games(id, owner, board, boardRows, boardColumns, mines, cellsToReveal, activeSince)
+VALUES (1, 'test@email.com', decode('010000000300000003010203040506070809', 'hex'), 3, 3, 1, 8, current_timestamp - interval '2 seconds');
 
 INSERT INTO minesweeper.playtimes(game, startedat)
 VALUES (1, current_timestamp - interval '2 seconds');
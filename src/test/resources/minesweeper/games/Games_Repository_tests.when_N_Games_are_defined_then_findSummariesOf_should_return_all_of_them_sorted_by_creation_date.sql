@@ -25,10 +25,10 @@ INSERT INTO minesweeper.Accounts(email, name, password)
 VALUES ('test@email.com', 'owner', 'password'),
        ('test2@email.com', 'owner2', 'password2');
 
-INSERT INTO minesweeper.Games(id, owner, creation, board)
-VALUES (1, 'test@email.com', current_timestamp - interval '1 minute', '{{1,2,3},{4,5,6},{7,8,9}}'),
-       (2, 'test@email.com', current_timestamp - interval '30 seconds', '{{1,2,3},{4,5,6},{7,8,9}}'),
-       (3, 'test@email.com', current_timestamp - interval '34 seconds', '{{1,2,3},{4,5,6},{7,8,9}}'),
-       (4, 'test2@email.com', current_timestamp - interval '30 seconds', '{{1,2,3},{4,5,6},{7,8,9}}'),
-       (5, 'test2@email.com', current_timestamp - interval '34 seconds', '{{1,2,3},{4,5,6},{7,8,9}}');
+INSERT INTO minesweeper.Games(id, owner, creation, board, boardRows, boardColumns, mines, cellsToReveal)
+VALUES (1, 'test@email.com', current_timestamp - interval '1 minute', decode('010000000300000003010203040506070809', 'hex'), 3, 3, 1, 8),
+       (2, 'test@email.com', current_timestamp - interval '30 seconds', decode('010000000300000003010203040506070809', 'hex'), 3, 3, 1, 8),
+       (3, 'test@email.com', current_timestamp - interval '34 seconds', decode('010000000300000003010203040506070809', 'hex'), 3, 3, 1, 8),
+       (4, 'test2@email.com', current_timestamp - interval '30 seconds', decode('010000000300000003010203040506070809', 'hex'), 3, 3, 1, 8),
+       (5, 'test2@email.com', current_timestamp - interval '34 seconds', decode('010000000300000003010203040506070809', 'hex'), 3, 3, 1, 8);
 